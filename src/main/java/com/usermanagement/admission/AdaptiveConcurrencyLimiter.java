@@ -0,0 +1,84 @@
+package com.usermanagement.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit adjusted with AIMD on observed latency: every sample below the latency
+ * threshold of its priority grows the limit additively while the limiter is in use, every
+ * sample above it shrinks the limit multiplicatively. Range operations may only occupy
+ * {@code rangeShare} of the current limit and never its last slot, which stays reserved for
+ * point operations.
+ */
+public class AdaptiveConcurrencyLimiter {
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final int minLimit;
+    private final int maxLimit;
+    private final double rangeShare;
+    private final double backoffRatio;
+    private final long pointLatencyThresholdNanos;
+    private final long rangeLatencyThresholdNanos;
+    private volatile double limit;
+
+    public AdaptiveConcurrencyLimiter(
+            int initialLimit,
+            int minLimit,
+            int maxLimit,
+            double rangeShare,
+            double backoffRatio,
+            long pointLatencyThresholdNanos,
+            long rangeLatencyThresholdNanos
+    ) {
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.rangeShare = rangeShare;
+        this.backoffRatio = backoffRatio;
+        this.pointLatencyThresholdNanos = pointLatencyThresholdNanos;
+        this.rangeLatencyThresholdNanos = rangeLatencyThresholdNanos;
+    }
+
+    public boolean tryAcquire(Priority priority) {
+        int allowed = getAllowed(priority);
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void release(Priority priority, long latencyNanos) {
+        int current = inFlight.getAndDecrement();
+        long threshold = priority == Priority.RANGE
+                ? rangeLatencyThresholdNanos
+                : pointLatencyThresholdNanos;
+        onSample(latencyNanos > threshold, current);
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private int getAllowed(Priority priority) {
+        double current = limit;
+        if (priority == Priority.RANGE) {
+            return Math.min(Math.max(1, (int) (current * rangeShare)), (int) current - 1);
+        }
+        return (int) current;
+    }
+
+    private synchronized void onSample(boolean overloaded, int inFlightAtRelease) {
+        if (overloaded) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+        } else if (inFlightAtRelease * 2 >= limit) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.usermanagement.admission;
+
+import com.usermanagement.exception.AdmissionRejectedException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Rejects requests above the adaptive concurrency limit before they reach the controller,
+ * so that admitted requests keep bounded latency instead of all of them slowing down.
+ */
+@Component
+public class AdmissionControlInterceptor implements HandlerInterceptor {
+    private static final String ADMITTED_AT =
+            AdmissionControlInterceptor.class.getName() + ".admittedAt";
+    private static final String PRIORITY =
+            AdmissionControlInterceptor.class.getName() + ".priority";
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final long retryAfterSeconds;
+
+    public AdmissionControlInterceptor(
+            @Value("${admission.initial-limit}") int initialLimit,
+            @Value("${admission.min-limit}") int minLimit,
+            @Value("${admission.max-limit}") int maxLimit,
+            @Value("${admission.range-share}") double rangeShare,
+            @Value("${admission.backoff-ratio}") double backoffRatio,
+            @Value("${admission.point-latency-threshold-ms}") long pointLatencyThresholdMs,
+            @Value("${admission.range-latency-threshold-ms}") long rangeLatencyThresholdMs,
+            @Value("${admission.retry-after-seconds}") long retryAfterSeconds
+    ) {
+        this.limiter = new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit,
+                rangeShare, backoffRatio,
+                TimeUnit.MILLISECONDS.toNanos(pointLatencyThresholdMs),
+                TimeUnit.MILLISECONDS.toNanos(rangeLatencyThresholdMs));
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @Override
+    public boolean preHandle(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            Object handler
+    ) {
+        if (!(handler instanceof HandlerMethod handlerMethod)) {
+            return true;
+        }
+        AdmissionPriority annotation = handlerMethod.getMethodAnnotation(AdmissionPriority.class);
+        Priority priority = annotation == null ? Priority.POINT : annotation.value();
+        if (!limiter.tryAcquire(priority)) {
+            throw new AdmissionRejectedException("Service is overloaded, "
+                    + priority.name().toLowerCase() + " requests are limited to the current "
+                    + "concurrency limit. Please, retry later.", retryAfterSeconds);
+        }
+        request.setAttribute(PRIORITY, priority);
+        request.setAttribute(ADMITTED_AT, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            Object handler,
+            Exception ex
+    ) {
+        Object admittedAt = request.getAttribute(ADMITTED_AT);
+        if (admittedAt == null) {
+            return;
+        }
+        request.removeAttribute(ADMITTED_AT);
+        Priority priority = (Priority) request.getAttribute(PRIORITY);
+        limiter.release(priority, System.nanoTime() - (long) admittedAt);
+    }
+}
@@ -0,0 +1,13 @@
+package com.usermanagement.admission;
+
+public enum Priority {
+    /**
+     * Cheap single-user reads and writes, may use the whole concurrency limit.
+     */
+    POINT,
+    /**
+     * Scans over many users, admitted only within a share of the concurrency limit
+     * so that point operations always keep headroom.
+     */
+    RANGE
+}
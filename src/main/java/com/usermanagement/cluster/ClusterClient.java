@@ -0,0 +1,207 @@
+package com.usermanagement.cluster;
+
+import com.usermanagement.db.UserRecord;
+import com.usermanagement.exception.AdmissionRejectedException;
+import com.usermanagement.exception.DateCheckingException;
+import com.usermanagement.exception.NodeUnavailableException;
+import com.usermanagement.exception.UserAlreadyExistsException;
+import com.usermanagement.exception.UserNotFoundException;
+import com.usermanagement.exception.VersionConflictException;
+import com.usermanagement.model.BulkResult;
+import com.usermanagement.model.User;
+import com.usermanagement.model.UserQuery;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.util.UriBuilder;
+
+/**
+ * Calls the internal endpoints of other nodes. Error responses are turned back into the
+ * exceptions the remote node raised, so that forwarded operations fail exactly like local
+ * ones, including an admission rejection of the remote node with its Retry-After.
+ */
+@Component
+@ConditionalOnProperty(name = "cluster.enabled", havingValue = "true")
+public class ClusterClient {
+    private static final String INTERNAL_PATH = "/internal/cluster";
+    private static final ParameterizedTypeReference<List<UserRecord>> RECORD_LIST =
+            new ParameterizedTypeReference<>() {
+            };
+    private static final ParameterizedTypeReference<List<String>> EMAIL_LIST =
+            new ParameterizedTypeReference<>() {
+            };
+    private final RestClient restClient;
+
+    @Autowired
+    public ClusterClient(
+            RestClient.Builder builder,
+            @Value("${cluster.timeout-ms}") int timeoutMs
+    ) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(timeoutMs);
+        requestFactory.setReadTimeout(timeoutMs);
+        this.restClient = builder
+                .requestFactory(requestFactory)
+                .defaultStatusHandler(HttpStatusCode::isError, (request, response) -> {
+                    String message = new String(response.getBody().readAllBytes(),
+                            StandardCharsets.UTF_8);
+                    String retryAfter = response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+                    if (response.getStatusCode().value() == 503 && retryAfter != null
+                            && retryAfter.matches("\\d+")) {
+                        throw new AdmissionRejectedException(message, Long.parseLong(retryAfter));
+                    }
+                    switch (response.getStatusCode().value()) {
+                        case 400 -> throw new DateCheckingException(message);
+                        case 404 -> throw new UserNotFoundException(message);
+                        case 409 -> throw new UserAlreadyExistsException(message);
+                        case 412 -> throw new VersionConflictException(message);
+                        default -> throw new NodeUnavailableException("Node "
+                                + request.getURI().getAuthority() + " answered "
+                                + response.getStatusCode() + ": " + message);
+                    }
+                })
+                .build();
+    }
+
+    public ClusterView join(String node, String member) {
+        return call(node, () -> restClient.post()
+                .uri(node + INTERNAL_PATH + "/join")
+                .body(member)
+                .retrieve()
+                .body(ClusterView.class));
+    }
+
+    public void applyView(String node, ClusterView view) {
+        call(node, () -> restClient.put()
+                .uri(node + INTERNAL_PATH + "/view")
+                .body(view)
+                .retrieve()
+                .toBodilessEntity());
+    }
+
+    public List<String> importUsers(String node, List<UserRecord> records) {
+        return call(node, () -> restClient.post()
+                .uri(node + INTERNAL_PATH + "/users/import")
+                .body(records)
+                .retrieve()
+                .body(EMAIL_LIST));
+    }
+
+    public User create(String node, User user) {
+        return call(node, () -> restClient.post()
+                .uri(node + INTERNAL_PATH + "/users")
+                .body(user)
+                .retrieve()
+                .body(UserRecord.class)).toUser();
+    }
+
+    public User getUser(String node, String email) {
+        return call(node, () -> restClient.get()
+                .uri(node + INTERNAL_PATH + "/users/{email}", email)
+                .retrieve()
+                .body(UserRecord.class)).toUser();
+    }
+
+    public User updateFields(String node, String email, Map<String, Object> fields, Long version) {
+        return call(node, () -> restClient.patch()
+                .uri(node + INTERNAL_PATH + "/users/{email}", b -> userUri(b, email, version))
+                .body(fields)
+                .retrieve()
+                .body(UserRecord.class)).toUser();
+    }
+
+    public User updateAllFields(String node, String email, User user, Long version) {
+        return call(node, () -> restClient.put()
+                .uri(node + INTERNAL_PATH + "/users/{email}", b -> userUri(b, email, version))
+                .body(user)
+                .retrieve()
+                .body(UserRecord.class)).toUser();
+    }
+
+    public void deleteUser(String node, String email, Long version) {
+        call(node, () -> restClient.delete()
+                .uri(node + INTERNAL_PATH + "/users/{email}", b -> userUri(b, email, version))
+                .retrieve()
+                .toBodilessEntity());
+    }
+
+    public List<User> getUsersByBirthDateRange(String node, LocalDate from, LocalDate to) {
+        return call(node, () -> restClient.get()
+                .uri(node + INTERNAL_PATH + "/users?from={from}&to={to}", from, to)
+                .retrieve()
+                .body(RECORD_LIST)).stream().map(UserRecord::toUser).toList();
+    }
+
+    public List<User> findUsers(String node, UserQuery query) {
+        return call(node, () -> restClient.get()
+                .uri(node + INTERNAL_PATH + "/users/search", b -> criteriaUri(b, query, null))
+                .retrieve()
+                .body(RECORD_LIST)).stream().map(UserRecord::toUser).toList();
+    }
+
+    public BulkResult deleteUsers(String node, UserQuery criteria, boolean dryRun) {
+        return call(node, () -> restClient.delete()
+                .uri(node + INTERNAL_PATH + "/users", b -> criteriaUri(b, criteria, dryRun))
+                .retrieve()
+                .body(BulkResult.class));
+    }
+
+    public BulkResult updateUsers(
+            String node,
+            UserQuery criteria,
+            Map<String, Object> fields,
+            boolean dryRun
+    ) {
+        return call(node, () -> restClient.patch()
+                .uri(node + INTERNAL_PATH + "/users", b -> criteriaUri(b, criteria, dryRun))
+                .body(fields)
+                .retrieve()
+                .body(BulkResult.class));
+    }
+
+    private URI criteriaUri(UriBuilder builder, UserQuery query, Boolean dryRun) {
+        Map<String, Object> criteria = new LinkedHashMap<>();
+        criteria.put("email", query.getEmail());
+        criteria.put("firstName", query.getFirstName());
+        criteria.put("lastName", query.getLastName());
+        criteria.put("from", query.getFrom());
+        criteria.put("to", query.getTo());
+        criteria.put("addressContains", query.getAddressContains());
+        criteria.put("phonePrefix", query.getPhonePrefix());
+        criteria.put("limit", query.getLimit());
+        criteria.put("dryRun", dryRun);
+        criteria.values().removeIf(Objects::isNull);
+        criteria.keySet().forEach(name -> builder.queryParam(name, "{" + name + "}"));
+        return builder.build(criteria);
+    }
+
+    private URI userUri(UriBuilder builder, String email, Long version) {
+        if (version != null) {
+            builder.queryParam("version", version);
+        }
+        return builder.build(email);
+    }
+
+    private <T> T call(String node, Supplier<T> request) {
+        try {
+            return request.get();
+        } catch (ResourceAccessException e) {
+            throw new NodeUnavailableException("Node " + node + " is not reachable", e);
+        }
+    }
+}
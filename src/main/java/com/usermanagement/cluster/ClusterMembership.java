@@ -0,0 +1,292 @@
+package com.usermanagement.cluster;
+
+import com.usermanagement.db.UserRecord;
+import com.usermanagement.db.UserStorage;
+import com.usermanagement.exception.NotOwnerException;
+import com.usermanagement.json.UserJsonCache;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tracks the nodes of the cluster and which of them owns an email on the consistent hash
+ * ring. A starting node joins through one of the configured seeds, which publishes the new
+ * view to every member. Whenever a node applies a new view it streams the users it no longer
+ * owns to their new owners in the background, and a stopping node hands all its users over
+ * before leaving.
+ *
+ * <p>Membership changes are not coordinated beyond the view epoch: users being handed over
+ * may be missed by reads, writes racing with a rebalance may be lost and crashed nodes are
+ * not detected.
+ */
+@Component
+@ConditionalOnProperty(name = "cluster.enabled", havingValue = "true")
+public class ClusterMembership {
+    private static final Logger log = LoggerFactory.getLogger(ClusterMembership.class);
+    private final ExecutorService handoff = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "cluster-handoff");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final UserStorage userStorage;
+    private final UserJsonCache userJsonCache;
+    private final ClusterClient clusterClient;
+    @Value("${cluster.self-url}")
+    private String selfUrl;
+    @Value("${cluster.seeds}")
+    private String seeds;
+    @Value("${cluster.virtual-nodes}")
+    private int virtualNodes;
+    @Value("${cluster.handoff-batch-size}")
+    private int handoffBatchSize;
+    @Value("${cluster.retry-after-seconds}")
+    private long retryAfterSeconds;
+    private volatile String self;
+    private volatile ClusterView view;
+    private volatile ConsistentHashRing ring;
+
+    @Autowired
+    public ClusterMembership(
+            UserStorage userStorage,
+            UserJsonCache userJsonCache,
+            ClusterClient clusterClient
+    ) {
+        this.userStorage = userStorage;
+        this.userJsonCache = userJsonCache;
+        this.clusterClient = clusterClient;
+    }
+
+    @EventListener
+    public void onWebServerInitialized(WebServerInitializedEvent event) {
+        self = selfUrl.isBlank() ? "http://localhost:" + event.getWebServer().getPort() : selfUrl;
+        view = new ClusterView(0, List.of(self));
+        ring = new ConsistentHashRing(view.members(), virtualNodes);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void joinCluster() {
+        for (String seed : Arrays.stream(seeds.split(",")).map(String::trim).toList()) {
+            if (seed.isEmpty() || seed.equals(self)) {
+                continue;
+            }
+            try {
+                apply(clusterClient.join(seed, self));
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Can't join the cluster through seed {}", seed, e);
+            }
+        }
+    }
+
+    public String getSelf() {
+        return self;
+    }
+
+    public boolean isSelf(String node) {
+        return self.equals(node);
+    }
+
+    public String ownerOf(String email) {
+        return ring.ownerOf(email);
+    }
+
+    /**
+     * Rejects an operation forwarded for an email this node doesn't own in its view, so that
+     * a node still on another view can't store a user where no handoff will ever move it.
+     */
+    public void checkOwner(String email) {
+        String owner = ownerOf(email);
+        if (!isSelf(owner)) {
+            throw new NotOwnerException("Node " + self + " doesn't own " + email + " in view "
+                    + view.epoch() + ", the owner is " + owner, retryAfterSeconds);
+        }
+    }
+
+    public List<String> getMembers() {
+        return view.members();
+    }
+
+    public ClusterView getView() {
+        return view;
+    }
+
+    /**
+     * Adds a member and publishes the resulting view to all members including the new one.
+     * A member that can't be reached doesn't stop the others from receiving the view.
+     */
+    public ClusterView join(String member) {
+        ClusterView next;
+        synchronized (this) {
+            if (view.members().contains(member)) {
+                return view;
+            }
+            TreeSet<String> members = new TreeSet<>(view.members());
+            members.add(member);
+            next = new ClusterView(view.epoch() + 1, List.copyOf(members));
+            apply(next);
+        }
+        publish(next);
+        return next;
+    }
+
+    /**
+     * Switches to a newer view. The users this node no longer owns are handed over in the
+     * background, so the view is acknowledged without waiting for the transfer.
+     */
+    public synchronized void apply(ClusterView next) {
+        if (next.epoch() <= view.epoch()) {
+            return;
+        }
+        view = next;
+        ring = new ConsistentHashRing(next.members(), virtualNodes);
+        ConsistentHashRing target = ring;
+        handoff.execute(() -> handOff(target));
+    }
+
+    /**
+     * Stores users handed over by another node. A user already present is only replaced by a
+     * higher version, so a resent handoff converges on the newest record. Returns the emails
+     * that were not stored because this node holds a newer record.
+     */
+    public List<String> importUsers(List<UserRecord> records) {
+        List<String> rejected = new ArrayList<>();
+        for (UserRecord record : records) {
+            if (store(record)) {
+                userJsonCache.invalidate(record.email());
+            } else {
+                rejected.add(record.email());
+            }
+        }
+        return rejected;
+    }
+
+    /**
+     * Publishes a view without this node and hands all users over, after any handoff still
+     * pending from earlier views.
+     */
+    @PreDestroy
+    public void leave() {
+        ClusterView next;
+        ConsistentHashRing target;
+        synchronized (this) {
+            if (view == null || view.members().size() < 2) {
+                handoff.shutdownNow();
+                return;
+            }
+            List<String> members = new ArrayList<>(view.members());
+            members.remove(self);
+            next = new ClusterView(view.epoch() + 1, List.copyOf(members));
+            view = next;
+            ring = new ConsistentHashRing(next.members(), virtualNodes);
+            target = ring;
+        }
+        publish(next);
+        Future<?> handedOver = handoff.submit(() -> handOff(target));
+        handoff.shutdown();
+        try {
+            handedOver.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.warn("Can't hand over the users before leaving", e.getCause());
+        }
+    }
+
+    private void publish(ClusterView next) {
+        for (String node : next.members()) {
+            if (isSelf(node)) {
+                continue;
+            }
+            try {
+                clusterClient.applyView(node, next);
+            } catch (RuntimeException e) {
+                log.warn("Can't publish the cluster view to {}", node, e);
+            }
+        }
+    }
+
+    private void handOff(ConsistentHashRing target) {
+        Map<String, List<UserRecord>> batches = new HashMap<>();
+        userStorage.stream().forEach(record -> {
+            String owner = target.ownerOf(record.email());
+            if (!isSelf(owner)) {
+                List<UserRecord> batch = batches.computeIfAbsent(owner, n -> new ArrayList<>());
+                batch.add(record);
+                if (batch.size() >= handoffBatchSize) {
+                    send(owner, batch);
+                }
+            }
+        });
+        batches.forEach(this::send);
+    }
+
+    private boolean store(UserRecord record) {
+        while (true) {
+            UserRecord current = userStorage.find(record.email()).orElse(null);
+            if (current == null) {
+                if (userStorage.insert(record)) {
+                    return true;
+                }
+            } else if (current.equals(record)) {
+                return true;
+            } else if (current.version() >= record.version()) {
+                return false;
+            } else if (userStorage.replace(current, record)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Sends a batch and removes the sent users locally. A user changed since it was read is
+     * sent again in its latest version, a user the owner refused is kept.
+     */
+    private void send(String owner, List<UserRecord> batch) {
+        List<UserRecord> pending = new ArrayList<>(batch);
+        batch.clear();
+        while (!pending.isEmpty()) {
+            Set<String> rejected;
+            try {
+                rejected = new HashSet<>(clusterClient.importUsers(owner, pending));
+            } catch (RuntimeException e) {
+                log.warn("Can't hand over {} users to {}", pending.size(), owner, e);
+                return;
+            }
+            if (!rejected.isEmpty()) {
+                log.warn("Node {} holds newer versions of {} users, keeping them", owner,
+                        rejected.size());
+            }
+            List<UserRecord> changed = new ArrayList<>();
+            for (UserRecord record : pending) {
+                if (rejected.contains(record.email())) {
+                    continue;
+                }
+                if (userStorage.remove(record)) {
+                    userJsonCache.invalidate(record.email());
+                } else {
+                    userStorage.find(record.email()).ifPresent(changed::add);
+                }
+            }
+            pending = changed;
+        }
+    }
+}
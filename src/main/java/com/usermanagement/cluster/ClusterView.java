@@ -0,0 +1,10 @@
+package com.usermanagement.cluster;
+
+import java.util.List;
+
+/**
+ * Cluster members as seen at a given epoch. A node only applies views with a higher epoch
+ * than its current one.
+ */
+public record ClusterView(long epoch, List<String> members) {
+}
@@ -0,0 +1,29 @@
+package com.usermanagement.config;
+
+import com.usermanagement.admission.AdmissionControlInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+    private final AdmissionControlInterceptor admissionControlInterceptor;
+    @Value("${admission.enabled}")
+    private boolean admissionEnabled;
+
+    @Autowired
+    public WebConfig(AdmissionControlInterceptor admissionControlInterceptor) {
+        this.admissionControlInterceptor = admissionControlInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (admissionEnabled) {
+            registry.addInterceptor(admissionControlInterceptor)
+                    .addPathPatterns("/users/**", "/internal/cluster/users/**")
+                    .excludePathPatterns("/internal/cluster/users/import");
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.usermanagement.controller;
+
+import com.usermanagement.admission.AdmissionPriority;
+import com.usermanagement.admission.Priority;
+import com.usermanagement.cluster.ClusterMembership;
+import com.usermanagement.cluster.ClusterView;
+import com.usermanagement.db.UserRecord;
+import com.usermanagement.model.BulkResult;
+import com.usermanagement.model.User;
+import com.usermanagement.model.UserQuery;
+import com.usermanagement.service.impl.UserServiceImpl;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Endpoints other nodes call to forward operations to the owning node, to gather range
+ * results and to rebalance. User operations here are always served from local storage,
+ * point operations only for emails this node owns in its current view.
+ */
+@RestController
+@RequestMapping("/internal/cluster")
+@ConditionalOnProperty(name = "cluster.enabled", havingValue = "true")
+@Tag(name = "Cluster", description = "Internal endpoints used between cluster nodes")
+public class ClusterController {
+    private final UserServiceImpl localService;
+    private final ClusterMembership membership;
+
+    @Autowired
+    public ClusterController(UserServiceImpl localService, ClusterMembership membership) {
+        this.localService = localService;
+        this.membership = membership;
+    }
+
+    @PostMapping("/join")
+    @Operation(summary = "Join the cluster", description = "Add a node and publish the new view")
+    public ClusterView join(@RequestBody String member) {
+        return membership.join(member);
+    }
+
+    @GetMapping("/view")
+    @Operation(summary = "Get cluster view", description = "Get the members known to this node")
+    public ClusterView getView() {
+        return membership.getView();
+    }
+
+    @PutMapping("/view")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @Operation(summary = "Apply cluster view",
+            description = "Apply a newer view and hand over users owned by other nodes")
+    public void applyView(@RequestBody ClusterView view) {
+        membership.apply(view);
+    }
+
+    @PostMapping("/users/import")
+    @Operation(summary = "Import users", description = "Store users handed over by another "
+            + "node, returns the emails not stored because a newer version is present")
+    public List<String> importUsers(@RequestBody List<UserRecord> records) {
+        return membership.importUsers(records);
+    }
+
+    @PostMapping("/users")
+    @ResponseStatus(HttpStatus.CREATED)
+    @Operation(summary = "Create a local user")
+    public UserRecord create(@RequestBody User user) {
+        membership.checkOwner(user.getEmail());
+        return toRecord(localService.create(user));
+    }
+
+    @GetMapping("/users/{email}")
+    @Operation(summary = "Find a local user")
+    public UserRecord get(@PathVariable String email) {
+        membership.checkOwner(email);
+        return toRecord(localService.getUser(email));
+    }
+
+    @PatchMapping("/users/{email}")
+    @Operation(summary = "Update local user's fields")
+    public UserRecord updateFields(
+            @PathVariable String email,
+            @RequestParam(required = false) Long version,
+            @RequestBody Map<String, Object> fields
+    ) {
+        membership.checkOwner(email);
+        return toRecord(localService.updateFields(email, fields, version));
+    }
+
+    @PutMapping("/users/{email}")
+    @Operation(summary = "Update local user")
+    public UserRecord update(
+            @PathVariable String email,
+            @RequestParam(required = false) Long version,
+            @RequestBody User user
+    ) {
+        membership.checkOwner(email);
+        return toRecord(localService.updateAllFields(email, user, version));
+    }
+
+    @DeleteMapping("/users/{email}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @Operation(summary = "Delete local user")
+    public void delete(@PathVariable String email, @RequestParam(required = false) Long version) {
+        membership.checkOwner(email);
+        localService.deleteUser(email, version);
+    }
+
+    @GetMapping("/users")
+    @AdmissionPriority(Priority.RANGE)
+    @Operation(summary = "Find local users in the birthdate range")
+    public List<UserRecord> getByBirthDateRange(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        return localService.getUsersByBirthDateRange(from, to).stream()
+                .map(this::toRecord)
+                .toList();
+    }
+
+    @GetMapping("/users/search")
+    @AdmissionPriority(Priority.RANGE)
+    @Operation(summary = "Search local users by several criteria")
+    public List<UserRecord> search(UserQuery query) {
+        return localService.findUsers(query).stream()
+                .map(this::toRecord)
+                .toList();
+    }
+
+    @DeleteMapping("/users")
+    @AdmissionPriority(Priority.RANGE)
+    @Operation(summary = "Delete local users by criteria")
+    public BulkResult deleteUsers(
+            UserQuery criteria,
+            @RequestParam(defaultValue = "false") boolean dryRun
+    ) {
+        return localService.deleteUsers(criteria, dryRun);
+    }
+
+    @PatchMapping("/users")
+    @AdmissionPriority(Priority.RANGE)
+    @Operation(summary = "Update fields of local users by criteria")
+    public BulkResult updateUsers(
+            UserQuery criteria,
+            @RequestParam(defaultValue = "false") boolean dryRun,
+            @RequestBody Map<String, Object> fields
+    ) {
+        return localService.updateUsers(criteria, fields, dryRun);
+    }
+
+    private UserRecord toRecord(User user) {
+        return UserRecord.of(user, user.getVersion());
+    }
+}
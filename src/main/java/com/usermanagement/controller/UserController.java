@@ -1,15 +1,29 @@
 package com.usermanagement.controller;
 
+import com.usermanagement.admission.AdmissionPriority;
+import com.usermanagement.admission.Priority;
+import com.usermanagement.exception.VersionConflictException;
+import com.usermanagement.json.UserJsonWriter;
+import com.usermanagement.model.BulkResult;
 import com.usermanagement.model.User;
+import com.usermanagement.model.UserQuery;
 import com.usermanagement.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
@@ -17,6 +31,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
@@ -26,49 +41,157 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/users")
 @Tag(name = "User management", description = "Endpoints for managing users")
 public class UserController {
+    private static final String ANY_VERSION = "*";
+    private static final String FIELDS_DESCRIPTION = "Optional comma separated list of "
+            + "fields to return, e.g. 'email,birthDate', all fields by default";
     private final UserService userService;
+    private final UserJsonWriter userJsonWriter;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, UserJsonWriter userJsonWriter) {
         this.userService = userService;
+        this.userJsonWriter = userJsonWriter;
     }
 
     @PostMapping
-    @ResponseStatus(HttpStatus.CREATED)
     @Operation(summary = "Create a new user",
             description = "Create a new user, valid user should be at least 18 years old")
-    public User create(@RequestBody @Valid User user) {
-        return userService.create(user);
+    public ResponseEntity<User> create(@RequestBody @Valid User user) {
+        return withVersion(ResponseEntity.status(HttpStatus.CREATED), userService.create(user));
+    }
+
+    @GetMapping("/{email}")
+    @Operation(summary = "Find user", description = "Get user by email, version is returned as ETag")
+    @ApiResponse(responseCode = "200", content = @Content(
+            mediaType = MediaType.APPLICATION_JSON_VALUE,
+            schema = @Schema(implementation = User.class)))
+    public ResponseEntity<byte[]> get(
+            @PathVariable String email,
+            @RequestParam(required = false) @Schema(description = FIELDS_DESCRIPTION) String fields
+    ) {
+        User user = userService.getUser(email);
+        return ResponseEntity.ok()
+                .eTag(String.valueOf(user.getVersion()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(userJsonWriter.write(user, userJsonWriter.getProjection(fields)));
     }
 
     @PatchMapping("/{email}")
-    @ResponseStatus(HttpStatus.OK)
-    @Operation(summary = "Update user's fields", description = "Update one or more user's fields")
-    public User updateFields(@PathVariable String email, @RequestBody Map<String, Object> fields) {
-        return userService.updateFields(email, fields);
+    @Operation(summary = "Update user's fields", description = "Update one or more user's fields, "
+            + "optional If-Match header should contain the ETag of the last read version")
+    public ResponseEntity<User> updateFields(
+            @PathVariable String email,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody Map<String, Object> fields
+    ) {
+        User user = userService.updateFields(email, fields, parseVersion(ifMatch));
+        return withVersion(ResponseEntity.ok(), user);
     }
 
     @PutMapping("/{email}")
-    @ResponseStatus(HttpStatus.OK)
-    @Operation(summary = "Update user", description = "Update all user's fields")
-    public User update(@PathVariable String email, @RequestBody User user) {
-        return userService.updateAllFields(email, user);
+    @Operation(summary = "Update user", description = "Update all user's fields, "
+            + "optional If-Match header should contain the ETag of the last read version")
+    public ResponseEntity<User> update(
+            @PathVariable String email,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @Valid @RequestBody User user
+    ) {
+        User updated = userService.updateAllFields(email, user, parseVersion(ifMatch));
+        return withVersion(ResponseEntity.ok(), updated);
     }
 
     @DeleteMapping("/{email}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    @Operation(summary = "Delete user", description = "Delete user by email")
-    public void delete(@PathVariable String email) {
-        userService.deleteUser(email);
+    @Operation(summary = "Delete user", description = "Delete user by email, "
+            + "optional If-Match header should contain the ETag of the last read version")
+    public void delete(
+            @PathVariable String email,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
+    ) {
+        userService.deleteUser(email, parseVersion(ifMatch));
     }
 
     @GetMapping
-    @ResponseStatus(HttpStatus.OK)
+    @AdmissionPriority(Priority.RANGE)
     @Operation(summary = "Find users in the birthdate range",
             description = "Get all users which birthdate is in a given range")
-    public List<User> getByBirthDateRange(@RequestParam String from, @RequestParam String to) {
+    @ApiResponse(responseCode = "200", content = @Content(
+            mediaType = MediaType.APPLICATION_JSON_VALUE,
+            array = @ArraySchema(schema = @Schema(implementation = User.class))))
+    public ResponseEntity<byte[]> getByBirthDateRange(
+            @RequestParam String from,
+            @RequestParam String to,
+            @RequestParam(required = false) @Schema(description = FIELDS_DESCRIPTION) String fields
+    ) {
         LocalDate dateFrom = LocalDate.parse(from);
         LocalDate dateTo = LocalDate.parse(to);
-        return userService.getUsersByBirthDateRange(dateFrom, dateTo);
+        return writeUsers(userService.getUsersByBirthDateRange(dateFrom, dateTo), fields);
+    }
+
+    @GetMapping("/search")
+    @AdmissionPriority(Priority.RANGE)
+    @Operation(summary = "Search users by several criteria",
+            description = "Get users matching all given criteria, birthdate range bounds are "
+                    + "exclusive, at most 'limit' users are returned")
+    @ApiResponse(responseCode = "200", content = @Content(
+            mediaType = MediaType.APPLICATION_JSON_VALUE,
+            array = @ArraySchema(schema = @Schema(implementation = User.class))))
+    public ResponseEntity<byte[]> search(
+            @ParameterObject @Valid UserQuery query,
+            @RequestParam(required = false) @Schema(description = FIELDS_DESCRIPTION) String fields
+    ) {
+        return writeUsers(userService.findUsers(query), fields);
+    }
+
+    @DeleteMapping
+    @AdmissionPriority(Priority.RANGE)
+    @Operation(summary = "Delete users by criteria",
+            description = "Delete all users matching the given criteria in one pass, "
+                    + "with dryRun only the number of matching users is returned")
+    public BulkResult deleteUsers(
+            @ParameterObject UserQuery criteria,
+            @RequestParam(defaultValue = "false") boolean dryRun
+    ) {
+        return userService.deleteUsers(criteria, dryRun);
+    }
+
+    @PatchMapping
+    @AdmissionPriority(Priority.RANGE)
+    @Operation(summary = "Update fields of users by criteria",
+            description = "Update one or more fields of all users matching the given criteria "
+                    + "in one pass, with dryRun only the number of matching users is returned")
+    public BulkResult updateUsers(
+            @ParameterObject UserQuery criteria,
+            @RequestParam(defaultValue = "false") boolean dryRun,
+            @RequestBody Map<String, Object> fields
+    ) {
+        return userService.updateUsers(criteria, fields, dryRun);
+    }
+
+    private ResponseEntity<byte[]> writeUsers(List<User> users, String fields) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(userJsonWriter.write(users, userJsonWriter.getProjection(fields)));
+    }
+
+    private ResponseEntity<User> withVersion(ResponseEntity.BodyBuilder builder, User user) {
+        return builder.eTag(String.valueOf(user.getVersion())).body(user);
+    }
+
+    private Long parseVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals(ANY_VERSION)) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        tag = tag.replace("\"", "");
+        try {
+            return Long.parseLong(tag);
+        } catch (NumberFormatException e) {
+            throw new VersionConflictException("If-Match header " + ifMatch
+                    + " does not match any version of the user.", e);
+        }
     }
 }
@@ -0,0 +1,19 @@
+package com.usermanagement.db;
+
+/**
+ * Latest known state of a key in one storage tier, a {@code null} record marks a deleted
+ * user and shadows older versions of it kept in colder tiers.
+ */
+record Entry(String email, UserRecord record) {
+    static Entry live(UserRecord record) {
+        return new Entry(record.email(), record);
+    }
+
+    static Entry tombstone(String email) {
+        return new Entry(email, null);
+    }
+
+    boolean isTombstone() {
+        return record == null;
+    }
+}
@@ -0,0 +1,480 @@
+package com.usermanagement.db;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Immutable file of entries sorted by email, read through a memory mapping. Only every
+ * {@code indexInterval}-th email is kept on heap as a sparse index, together with the
+ * birthdate bounds of the live entries used to skip the segment in range scans.
+ *
+ * <p>Layout: entries ({@code int length, byte tombstone, email, version, firstName,
+ * lastName, birthDate, address, phoneNumber}, strings as {@code int length} and UTF-8
+ * bytes, length -1 for null, birthDate as {@code byte present} followed by the
+ * {@code long} epoch day if present), the sparse index ({@code int count}, then
+ * {@code email, int offset} pairs) and a fixed size footer. Users without a birthdate
+ * don't widen the birthdate bounds.
+ */
+final class Segment {
+    private static final int MAGIC = 0x55534547;
+    private static final int FOOTER_SIZE = Long.BYTES * 3 + Integer.BYTES * 2;
+    private static final byte LIVE = 0;
+    private static final byte TOMBSTONE = 1;
+    private static final byte ABSENT = 0;
+    private static final byte PRESENT = 1;
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final String[] indexKeys;
+    private final int[] indexOffsets;
+    private final int dataEnd;
+    private final int entryCount;
+    private final long minBirthDay;
+    private final long maxBirthDay;
+
+    private Segment(Path path, MappedByteBuffer buffer, String[] indexKeys, int[] indexOffsets,
+                    int dataEnd, int entryCount, long minBirthDay, long maxBirthDay) {
+        this.path = path;
+        this.buffer = buffer;
+        this.indexKeys = indexKeys;
+        this.indexOffsets = indexOffsets;
+        this.dataEnd = dataEnd;
+        this.entryCount = entryCount;
+        this.minBirthDay = minBirthDay;
+        this.maxBirthDay = maxBirthDay;
+    }
+
+    static Segment write(Path path, Iterator<Entry> sortedEntries, int indexInterval) {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            List<String> indexKeys = new ArrayList<>();
+            List<Integer> indexOffsets = new ArrayList<>();
+            ByteArrayOutputStream entryBytes = new ByteArrayOutputStream();
+            DataOutputStream entryOut = new DataOutputStream(entryBytes);
+            long minBirthDay = Long.MAX_VALUE;
+            long maxBirthDay = Long.MIN_VALUE;
+            int count = 0;
+            while (sortedEntries.hasNext()) {
+                Entry entry = sortedEntries.next();
+                if (count % indexInterval == 0) {
+                    indexKeys.add(entry.email());
+                    indexOffsets.add(out.size());
+                }
+                entryBytes.reset();
+                encode(entry, entryOut);
+                out.writeInt(entryBytes.size());
+                entryBytes.writeTo(out);
+                if (!entry.isTombstone() && entry.record().birthDate() != null) {
+                    long birthDay = entry.record().birthDate().toEpochDay();
+                    minBirthDay = Math.min(minBirthDay, birthDay);
+                    maxBirthDay = Math.max(maxBirthDay, birthDay);
+                }
+                count++;
+            }
+            int indexOffset = out.size();
+            out.writeInt(indexKeys.size());
+            for (int i = 0; i < indexKeys.size(); i++) {
+                writeString(out, indexKeys.get(i));
+                out.writeInt(indexOffsets.get(i));
+            }
+            out.writeLong(indexOffset);
+            out.writeInt(count);
+            out.writeLong(minBirthDay);
+            out.writeLong(maxBirthDay);
+            out.writeInt(MAGIC);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't write segment " + path, e);
+        }
+        try {
+            Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't write segment " + path, e);
+        }
+        return open(path);
+    }
+
+    /**
+     * Merges segments ordered from the newest to the oldest into a single segment keeping
+     * the newest entry of every email. Tombstones are dropped, so the result is only
+     * correct when no older segment remains.
+     */
+    static Segment merge(Path path, List<Segment> newestFirst, int indexInterval) {
+        Iterator<Entry> live = newest(newestFirst, null, null)
+                .filter(e -> !e.isTombstone())
+                .iterator();
+        return write(path, live, indexInterval);
+    }
+
+    /**
+     * Streams the newest entry of every email, tombstones included, of segments ordered
+     * from the newest to the oldest in a single k-way merge. Only the segments overlapping
+     * the birthdate range are merged. The others can't hold a live user of the range, they
+     * are only probed by key for the emails taken from older segments. The stream splits
+     * into key ranges for parallel processing.
+     */
+    static Stream<Entry> newest(List<Segment> newestFirst, LocalDate from, LocalDate to) {
+        boolean[] probed = new boolean[newestFirst.size()];
+        for (int i = 0; i < probed.length; i++) {
+            probed[i] = !newestFirst.get(i).overlaps(from, to);
+        }
+        return StreamSupport.stream(new Merge(newestFirst, probed, null, null), false);
+    }
+
+    static Segment open(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int footer = buffer.limit() - FOOTER_SIZE;
+            if (footer < 0 || buffer.getInt(buffer.limit() - Integer.BYTES) != MAGIC) {
+                throw new IllegalStateException("File " + path + " is not a user segment");
+            }
+            int indexOffset = (int) buffer.getLong(footer);
+            int entryCount = buffer.getInt(footer + Long.BYTES);
+            long minBirthDay = buffer.getLong(footer + Long.BYTES + Integer.BYTES);
+            long maxBirthDay = buffer.getLong(footer + Long.BYTES * 2 + Integer.BYTES);
+            Reader reader = new Reader(buffer, indexOffset);
+            int indexSize = reader.readInt();
+            String[] indexKeys = new String[indexSize];
+            int[] indexOffsets = new int[indexSize];
+            for (int i = 0; i < indexSize; i++) {
+                indexKeys[i] = reader.readString();
+                indexOffsets[i] = reader.readInt();
+            }
+            return new Segment(path, buffer, indexKeys, indexOffsets, indexOffset, entryCount,
+                    minBirthDay, maxBirthDay);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't open segment " + path, e);
+        }
+    }
+
+    Entry find(String email) {
+        Cursor cursor = seek(email, null, 0);
+        return cursor != null && cursor.email.equals(email) ? cursor.entry() : null;
+    }
+
+    boolean contains(String email) {
+        Cursor cursor = seek(email, null, 0);
+        return cursor != null && cursor.email.equals(email);
+    }
+
+    boolean overlaps(LocalDate from, LocalDate to) {
+        return minBirthDay <= maxBirthDay
+                && (from == null || maxBirthDay >= from.toEpochDay())
+                && (to == null || minBirthDay <= to.toEpochDay());
+    }
+
+    int size() {
+        return entryCount;
+    }
+
+    void delete() {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            path.toFile().deleteOnExit();
+        }
+    }
+
+    /**
+     * Positions a cursor at the first entry of {@code [low, high)}, reading only the keys of
+     * the entries it passes. Returns {@code null} if the range holds no entry.
+     */
+    private Cursor seek(String low, String high, int age) {
+        int block = low == null ? -1 : indexKeysAfter(low) - 1;
+        Cursor cursor = new Cursor(this, age, block < 0 ? 0 : indexOffsets[block], high);
+        while (cursor.advance()) {
+            if (low == null || cursor.email.compareTo(low) >= 0) {
+                return cursor;
+            }
+        }
+        return null;
+    }
+
+    private long estimateSize(String low, String high) {
+        if (indexKeys.length == 0) {
+            return 0;
+        }
+        int first = low == null ? 0 : indexKeysFrom(low);
+        int last = high == null ? indexKeys.length : indexKeysFrom(high);
+        return (long) Math.max(last - first, 1) * entryCount / indexKeys.length;
+    }
+
+    /**
+     * Returns the position of the first sparse index key not less than the given email.
+     */
+    private int indexKeysFrom(String email) {
+        int found = Arrays.binarySearch(indexKeys, email);
+        return found >= 0 ? found : -found - 1;
+    }
+
+    /**
+     * Returns the position of the first sparse index key greater than the given email.
+     */
+    private int indexKeysAfter(String email) {
+        int found = Arrays.binarySearch(indexKeys, email);
+        return found >= 0 ? found + 1 : -found - 1;
+    }
+
+    private static UserRecord decodeRecord(String email, Reader reader) {
+        long version = reader.readLong();
+        String firstName = reader.readString();
+        String lastName = reader.readString();
+        LocalDate birthDate = reader.readByte() == PRESENT
+                ? LocalDate.ofEpochDay(reader.readLong())
+                : null;
+        String address = reader.readString();
+        String phoneNumber = reader.readString();
+        return new UserRecord(email, firstName, lastName, birthDate, address, phoneNumber,
+                version);
+    }
+
+    private static void encode(Entry entry, DataOutputStream out) throws IOException {
+        out.writeByte(entry.isTombstone() ? TOMBSTONE : LIVE);
+        writeString(out, entry.email());
+        if (entry.isTombstone()) {
+            return;
+        }
+        UserRecord record = entry.record();
+        out.writeLong(record.version());
+        writeString(out, record.firstName());
+        writeString(out, record.lastName());
+        if (record.birthDate() != null) {
+            out.writeByte(PRESENT);
+            out.writeLong(record.birthDate().toEpochDay());
+        } else {
+            out.writeByte(ABSENT);
+        }
+        writeString(out, record.address());
+        writeString(out, record.phoneNumber());
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads with absolute positions only, so one mapping is safely shared by all readers.
+     */
+    private static final class Reader {
+        private final MappedByteBuffer buffer;
+        private int position;
+
+        private Reader(MappedByteBuffer buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        private byte readByte() {
+            return buffer.get(position++);
+        }
+
+        private int readInt() {
+            int value = buffer.getInt(position);
+            position += Integer.BYTES;
+            return value;
+        }
+
+        private long readLong() {
+            long value = buffer.getLong(position);
+            position += Long.BYTES;
+            return value;
+        }
+
+        private String readString() {
+            int length = readInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(position, bytes);
+            position += length;
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Reads the entries of a segment in order. Advancing reads only the email, the record
+     * is decoded on demand, so entries shadowed by newer segments are never decoded.
+     */
+    private static final class Cursor implements Comparable<Cursor> {
+        private final Segment segment;
+        private final int age;
+        private final String high;
+        private int position;
+        private int recordPosition;
+        private boolean tombstone;
+        private String email;
+
+        private Cursor(Segment segment, int age, int position, String high) {
+            this.segment = segment;
+            this.age = age;
+            this.position = position;
+            this.high = high;
+        }
+
+        private boolean advance() {
+            if (position >= segment.dataEnd) {
+                email = null;
+                return false;
+            }
+            Reader reader = new Reader(segment.buffer, position);
+            position = reader.position + Integer.BYTES + reader.readInt();
+            tombstone = reader.readByte() == TOMBSTONE;
+            email = reader.readString();
+            recordPosition = reader.position;
+            if (high != null && email.compareTo(high) >= 0) {
+                position = segment.dataEnd;
+                email = null;
+                return false;
+            }
+            return true;
+        }
+
+        private Entry entry() {
+            return tombstone
+                    ? Entry.tombstone(email)
+                    : Entry.live(decodeRecord(email, new Reader(segment.buffer, recordPosition)));
+        }
+
+        @Override
+        public int compareTo(Cursor other) {
+            int comparison = email.compareTo(other.email);
+            return comparison != 0 ? comparison : Integer.compare(age, other.age);
+        }
+    }
+
+    /**
+     * Merges the key range {@code [low, high)} of the segments, {@code null} leaves a bound
+     * open. Splitting cuts the range at a sparse index key of the largest merged segment, so
+     * both halves seek straight to their start and are merged concurrently.
+     */
+    private static final class Merge implements Spliterator<Entry> {
+        private final List<Segment> newestFirst;
+        private final boolean[] probed;
+        private String low;
+        private final String high;
+        private PriorityQueue<Cursor> queue;
+
+        private Merge(List<Segment> newestFirst, boolean[] probed, String low, String high) {
+            this.newestFirst = newestFirst;
+            this.probed = probed;
+            this.low = low;
+            this.high = high;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Entry> action) {
+            if (queue == null) {
+                queue = new PriorityQueue<>();
+                for (int i = 0; i < newestFirst.size(); i++) {
+                    Cursor cursor = probed[i] ? null : newestFirst.get(i).seek(low, high, i);
+                    if (cursor != null) {
+                        queue.add(cursor);
+                    }
+                }
+            }
+            Entry entry = nextNewest();
+            if (entry == null) {
+                return false;
+            }
+            action.accept(entry);
+            return true;
+        }
+
+        @Override
+        public Spliterator<Entry> trySplit() {
+            if (queue != null) {
+                return null;
+            }
+            Segment largest = null;
+            for (int i = 0; i < newestFirst.size(); i++) {
+                Segment segment = newestFirst.get(i);
+                if (!probed[i] && (largest == null || segment.entryCount > largest.entryCount)) {
+                    largest = segment;
+                }
+            }
+            if (largest == null) {
+                return null;
+            }
+            int first = low == null ? 0 : largest.indexKeysAfter(low);
+            int last = high == null ? largest.indexKeys.length : largest.indexKeysFrom(high);
+            if (first >= last) {
+                return null;
+            }
+            String middle = largest.indexKeys[(first + last) >>> 1];
+            Merge prefix = new Merge(newestFirst, probed, low, middle);
+            low = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            long size = 0;
+            for (int i = 0; i < newestFirst.size(); i++) {
+                if (!probed[i]) {
+                    size += newestFirst.get(i).estimateSize(low, high);
+                }
+            }
+            return size;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.DISTINCT;
+        }
+
+        private Entry nextNewest() {
+            while (!queue.isEmpty()) {
+                Cursor newest = queue.poll();
+                while (!queue.isEmpty() && queue.peek().email.equals(newest.email)) {
+                    Cursor older = queue.poll();
+                    if (older.advance()) {
+                        queue.add(older);
+                    }
+                }
+                Entry entry = isProbedNewer(newest.email, newest.age) ? null : newest.entry();
+                if (newest.advance()) {
+                    queue.add(newest);
+                }
+                if (entry != null) {
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+        private boolean isProbedNewer(String email, int age) {
+            for (int i = 0; i < age; i++) {
+                if (probed[i] && newestFirst.get(i).contains(email)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
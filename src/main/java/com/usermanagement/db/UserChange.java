@@ -0,0 +1,14 @@
+package com.usermanagement.db;
+
+/**
+ * Compare-and-swap of one stored user, a {@code null} updated record deletes the user.
+ */
+public record UserChange(UserRecord expected, UserRecord updated) {
+    public static UserChange delete(UserRecord expected) {
+        return new UserChange(expected, null);
+    }
+
+    public boolean isDelete() {
+        return updated == null;
+    }
+}
@@ -0,0 +1,40 @@
+package com.usermanagement.db;
+
+import com.usermanagement.model.User;
+import java.time.LocalDate;
+
+public record UserRecord(
+        String email,
+        String firstName,
+        String lastName,
+        LocalDate birthDate,
+        String address,
+        String phoneNumber,
+        long version
+) {
+    public static UserRecord of(User user, long version) {
+        return new UserRecord(user.getEmail(), user.getFirstName(), user.getLastName(),
+                user.getBirthDate(), user.getAddress(), user.getPhoneNumber(), version);
+    }
+
+    /**
+     * Builds the successor of this record from the given user's fields. The email is the
+     * storage key and is never taken from the user.
+     */
+    public UserRecord next(User user, long version) {
+        return new UserRecord(email, user.getFirstName(), user.getLastName(),
+                user.getBirthDate(), user.getAddress(), user.getPhoneNumber(), version);
+    }
+
+    public User toUser() {
+        User user = new User();
+        user.setEmail(email);
+        user.setFirstName(firstName);
+        user.setLastName(lastName);
+        user.setBirthDate(birthDate);
+        user.setAddress(address);
+        user.setPhoneNumber(phoneNumber);
+        user.setVersion(version);
+        return user;
+    }
+}
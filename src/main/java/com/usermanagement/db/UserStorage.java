@@ -1,9 +1,398 @@
 package com.usermanagement.db;
 
-import com.usermanagement.model.User;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
 
+/**
+ * Keeps immutable {@link UserRecord}s keyed by email. Records are never modified in place,
+ * every change replaces the whole record with compare-and-swap semantics, so concurrent
+ * writers either win or observe a conflict and retry against the fresh record.
+ *
+ * <p>Writes go to an in-memory memtable. Once it exceeds its size it is spilled in the
+ * background to a sorted, memory-mapped {@link Segment}, so rarely touched users leave the
+ * heap. Reads of spilled users go through a size-bounded LRU cache, and segments are merged
+ * by compaction once there are too many of them. The segment directory is scratch space
+ * and is wiped on startup.
+ */
+@Component
 public class UserStorage {
-    public static List<User> usersDB = new ArrayList<>();
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object maintenanceLock = new Object();
+    private final AtomicBoolean maintenanceScheduled = new AtomicBoolean();
+    private final AtomicLong segmentSequence = new AtomicLong();
+    private final AtomicLong versionSequence = new AtomicLong();
+    private final ExecutorService maintenance = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "user-storage-maintenance");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Path directory;
+    private final boolean temporaryDirectory;
+    private final int memtableMaxEntries;
+    private final int indexInterval;
+    private final int maxSegments;
+    private final LruCache<String, UserRecord> cache;
+    private volatile ConcurrentMap<String, Entry> memtable = new ConcurrentHashMap<>();
+    private Map<String, Entry> flushing = Map.of();
+    private List<Segment> segments = List.of();
+
+    public UserStorage(
+            @Value("${storage.dir}") String directory,
+            @Value("${storage.memtable.max-entries}") int memtableMaxEntries,
+            @Value("${storage.cache.max-entries}") int cacheMaxEntries,
+            @Value("${storage.segment.index-interval}") int indexInterval,
+            @Value("${storage.compaction.max-segments}") int maxSegments
+    ) {
+        this.memtableMaxEntries = memtableMaxEntries;
+        this.indexInterval = indexInterval;
+        this.maxSegments = maxSegments;
+        this.cache = new LruCache<>(cacheMaxEntries, record -> 1);
+        try {
+            this.temporaryDirectory = directory == null || directory.isBlank();
+            this.directory = temporaryDirectory
+                    ? Files.createTempDirectory("user-storage")
+                    : Files.createDirectories(Path.of(directory));
+            deleteSegmentFiles();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't prepare storage directory " + directory, e);
+        }
+    }
+
+    public Optional<UserRecord> find(String email) {
+        lock.readLock().lock();
+        try {
+            Entry entry = memtable.get(email);
+            return Optional.ofNullable(entry != null ? entry.record() : findCold(email));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a version never handed out by this storage before and greater than the
+     * version of every record written so far. Taking every new version from here keeps the
+     * versions of an email increasing and unique, also across a delete and re-create.
+     */
+    public long nextVersion() {
+        return versionSequence.incrementAndGet();
+    }
+
+    public boolean insert(UserRecord record) {
+        return write(record.email(), null, Entry.live(record));
+    }
+
+    public boolean replace(UserRecord expected, UserRecord updated) {
+        return write(expected.email(), expected, Entry.live(updated));
+    }
+
+    public boolean remove(UserRecord expected) {
+        return write(expected.email(), expected, Entry.tombstone(expected.email()));
+    }
+
+    /**
+     * Applies a batch of changes under a single lock acquisition and checks the memtable
+     * size once for the whole batch. Every change is still a compare-and-swap on its own,
+     * the changes whose expected record is no longer current are returned.
+     */
+    public List<UserChange> applyAll(List<UserChange> changes) {
+        List<UserChange> failed = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (UserChange change : changes) {
+                String email = change.expected().email();
+                Entry updated = change.isDelete()
+                        ? Entry.tombstone(email)
+                        : Entry.live(change.updated());
+                if (!writeLocked(email, change.expected(), updated)) {
+                    failed.add(change);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (failed.size() < changes.size() && memtable.size() >= memtableMaxEntries) {
+            scheduleFlush();
+        }
+        return failed;
+    }
+
+    public Stream<UserRecord> stream() {
+        return scan(null, null);
+    }
+
+    /**
+     * Streams the users born within the given inclusive bounds, {@code null} leaves a bound
+     * open. Segments whose birthdate bounds don't overlap the range are not read at all.
+     * The stream is weakly consistent and may be made parallel, the segments are then
+     * merged concurrently in disjoint email ranges.
+     */
+    public Stream<UserRecord> streamByBirthDate(LocalDate from, LocalDate to) {
+        return scan(from, to);
+    }
+
+    /**
+     * Estimates how many users a birthdate range scan reads: all memtable entries plus the
+     * entries of every segment that can't be skipped. {@code null} bounds give the total.
+     */
+    public long estimateCount(LocalDate from, LocalDate to) {
+        lock.readLock().lock();
+        try {
+            long count = (long) memtable.size() + flushing.size();
+            for (Segment segment : segments) {
+                if ((from == null && to == null) || segment.overlaps(from, to)) {
+                    count += segment.size();
+                }
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        return (int) stream().count();
+    }
+
+    public void clear() {
+        synchronized (maintenanceLock) {
+            lock.writeLock().lock();
+            try {
+                memtable = new ConcurrentHashMap<>();
+                flushing = Map.of();
+                segments.forEach(Segment::delete);
+                segments = List.of();
+                cache.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Spills the current memtable to a new segment and compacts the segments if there are
+     * more of them than allowed. Runs in the background once the memtable is full.
+     */
+    public void flush() {
+        synchronized (maintenanceLock) {
+            Map<String, Entry> frozen;
+            lock.writeLock().lock();
+            try {
+                if (memtable.isEmpty()) {
+                    return;
+                }
+                frozen = memtable;
+                flushing = frozen;
+                memtable = new ConcurrentHashMap<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            Segment segment;
+            try {
+                segment = Segment.write(nextSegmentPath(),
+                        new TreeMap<>(frozen).values().iterator(), indexInterval);
+            } catch (RuntimeException e) {
+                lock.writeLock().lock();
+                try {
+                    frozen.forEach(memtable::putIfAbsent);
+                    flushing = Map.of();
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                throw e;
+            }
+            lock.writeLock().lock();
+            try {
+                List<Segment> published = new ArrayList<>(segments.size() + 1);
+                published.add(segment);
+                published.addAll(segments);
+                segments = List.copyOf(published);
+                flushing = Map.of();
+                frozen.keySet().forEach(cache::remove);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (segments.size() > maxSegments) {
+                compact();
+            }
+        }
+    }
+
+    /**
+     * Merges all segments into one, dropping overwritten versions and deleted users.
+     */
+    public void compact() {
+        synchronized (maintenanceLock) {
+            List<Segment> merged;
+            lock.readLock().lock();
+            try {
+                merged = segments;
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (merged.size() < 2) {
+                return;
+            }
+            Segment segment = Segment.merge(nextSegmentPath(), merged, indexInterval);
+            lock.writeLock().lock();
+            try {
+                segments = List.of(segment);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            merged.forEach(Segment::delete);
+        }
+    }
+
+    public int getSegmentCount() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        maintenance.shutdownNow();
+        clear();
+        if (temporaryDirectory) {
+            try {
+                Files.deleteIfExists(directory);
+            } catch (IOException e) {
+                directory.toFile().deleteOnExit();
+            }
+        }
+    }
+
+    private boolean write(String email, UserRecord expected, Entry updated) {
+        boolean written;
+        lock.readLock().lock();
+        try {
+            written = writeLocked(email, expected, updated);
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (written && memtable.size() >= memtableMaxEntries) {
+            scheduleFlush();
+        }
+        return written;
+    }
+
+    private boolean writeLocked(String email, UserRecord expected, Entry updated) {
+        Entry current = memtable.get(email);
+        boolean written;
+        if (current != null) {
+            written = Objects.equals(current.record(), expected)
+                    && memtable.replace(email, current, updated);
+        } else {
+            written = Objects.equals(findCold(email), expected)
+                    && memtable.putIfAbsent(email, updated) == null;
+        }
+        if (written) {
+            cache.remove(email);
+            if (!updated.isTombstone()) {
+                versionSequence.accumulateAndGet(updated.record().version(), Math::max);
+            }
+        }
+        return written;
+    }
+
+    private UserRecord findCold(String email) {
+        Entry entry = flushing.get(email);
+        if (entry != null) {
+            return entry.record();
+        }
+        UserRecord cached = cache.get(email);
+        if (cached != null) {
+            return cached;
+        }
+        for (Segment segment : segments) {
+            entry = segment.find(email);
+            if (entry != null) {
+                if (!entry.isTombstone()) {
+                    cache.put(email, entry.record());
+                }
+                return entry.record();
+            }
+        }
+        return null;
+    }
+
+    private Stream<UserRecord> scan(LocalDate from, LocalDate to) {
+        Map<String, Entry> hot;
+        List<Segment> cold;
+        lock.readLock().lock();
+        try {
+            hot = new HashMap<>(flushing);
+            hot.putAll(memtable);
+            cold = segments;
+        } finally {
+            lock.readLock().unlock();
+        }
+        Stream<UserRecord> hotRecords = hot.values().stream()
+                .filter(e -> !e.isTombstone() && inRange(e.record(), from, to))
+                .map(Entry::record);
+        Stream<UserRecord> coldRecords = Segment.newest(cold, from, to)
+                .filter(e -> !e.isTombstone() && !hot.containsKey(e.email()))
+                .filter(e -> inRange(e.record(), from, to))
+                .map(Entry::record);
+        return Stream.concat(hotRecords, coldRecords);
+    }
+
+    private boolean inRange(UserRecord record, LocalDate from, LocalDate to) {
+        if (record.birthDate() == null) {
+            return from == null && to == null;
+        }
+        return (from == null || !record.birthDate().isBefore(from))
+                && (to == null || !record.birthDate().isAfter(to));
+    }
+
+    private void scheduleFlush() {
+        if (maintenanceScheduled.compareAndSet(false, true)) {
+            maintenance.execute(() -> {
+                try {
+                    flush();
+                } finally {
+                    maintenanceScheduled.set(false);
+                }
+            });
+        }
+    }
+
+    private Path nextSegmentPath() {
+        return directory.resolve(String.format("%012d%s",
+                segmentSequence.incrementAndGet(), SEGMENT_SUFFIX));
+    }
+
+    private void deleteSegmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(f -> f.toString().endsWith(SEGMENT_SUFFIX)).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
 }
@@ -0,0 +1,11 @@
+package com.usermanagement.exception;
+
+public class InvalidCriteriaException extends RuntimeException {
+    public InvalidCriteriaException(String message) {
+        super(message);
+    }
+
+    public InvalidCriteriaException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,14 @@
+package com.usermanagement.exception;
+
+public class NotOwnerException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public NotOwnerException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
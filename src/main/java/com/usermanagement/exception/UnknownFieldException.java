@@ -0,0 +1,11 @@
+package com.usermanagement.exception;
+
+public class UnknownFieldException extends RuntimeException {
+    public UnknownFieldException(String message) {
+        super(message);
+    }
+
+    public UnknownFieldException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,35 @@
+package com.usermanagement.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.usermanagement.model.User;
+import java.io.IOException;
+import java.util.function.Function;
+
+/**
+ * Properties of {@link User} that can be requested in a projection, declared in the order
+ * they are written.
+ */
+public enum UserField {
+    EMAIL("email", User::getEmail),
+    FIRST_NAME("firstName", User::getFirstName),
+    LAST_NAME("lastName", User::getLastName),
+    BIRTH_DATE("birthDate", u -> u.getBirthDate() == null ? null : u.getBirthDate().toString()),
+    ADDRESS("address", User::getAddress),
+    PHONE_NUMBER("phoneNumber", User::getPhoneNumber);
+
+    private final String propertyName;
+    private final Function<User, String> accessor;
+
+    UserField(String propertyName, Function<User, String> accessor) {
+        this.propertyName = propertyName;
+        this.accessor = accessor;
+    }
+
+    public String getPropertyName() {
+        return propertyName;
+    }
+
+    void writeValue(JsonGenerator generator, User user) throws IOException {
+        generator.writeString(accessor.apply(user));
+    }
+}
@@ -0,0 +1,60 @@
+package com.usermanagement.json;
+
+import com.usermanagement.db.LruCache;
+import com.usermanagement.model.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the complete UTF-8 JSON form of recently written users, bounded by the total number
+ * of cached bytes. Entries are tagged with the user version, which the local storage never
+ * hands out twice for an email, not even after a delete and re-create. A stale entry that
+ * escaped invalidation, such as one put by a read racing with a write, is therefore never
+ * served. Versions are only unique per node, so the cache stays off in cluster mode.
+ */
+@Component
+public class UserJsonCache {
+    private static final int ENTRY_OVERHEAD = 64;
+    private final boolean enabled;
+    private final LruCache<String, CachedJson> cache;
+
+    public UserJsonCache(
+            @Value("${json-cache.enabled}") boolean enabled,
+            @Value("${json-cache.max-bytes}") long maxBytes,
+            @Value("${cluster.enabled}") boolean clusterEnabled
+    ) {
+        this.enabled = enabled && !clusterEnabled;
+        this.cache = new LruCache<>(maxBytes, c -> c.json().length + ENTRY_OVERHEAD);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public byte[] get(User user) {
+        if (!enabled || user.getVersion() == null) {
+            return null;
+        }
+        CachedJson cached = cache.get(user.getEmail());
+        return cached != null && cached.version() == user.getVersion() ? cached.json() : null;
+    }
+
+    public void put(User user, byte[] json) {
+        if (enabled && user.getVersion() != null) {
+            cache.put(user.getEmail(), new CachedJson(user.getVersion(), json));
+        }
+    }
+
+    public void invalidate(String email) {
+        if (enabled) {
+            cache.remove(email);
+        }
+    }
+
+    public long getCachedBytes() {
+        return cache.weight();
+    }
+
+    private record CachedJson(long version, byte[] json) {
+    }
+}
@@ -0,0 +1,117 @@
+package com.usermanagement.json;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.usermanagement.exception.UnknownFieldException;
+import com.usermanagement.model.User;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes users as UTF-8 JSON limited to the requested fields. Projections are prepared once
+ * per distinct set of fields and reused by all requests asking for the same shape.
+ */
+@Component
+public class UserJsonWriter {
+    private static final Map<String, UserField> FIELDS_BY_NAME = Stream.of(UserField.values())
+            .collect(Collectors.toMap(UserField::getPropertyName, Function.identity()));
+    private final JsonFactory jsonFactory;
+    private final UserJsonCache userJsonCache;
+    private final ConcurrentMap<Set<UserField>, UserProjection> projections = new ConcurrentHashMap<>();
+
+    @Autowired
+    public UserJsonWriter(ObjectMapper objectMapper, UserJsonCache userJsonCache) {
+        this.jsonFactory = objectMapper.getFactory();
+        this.userJsonCache = userJsonCache;
+    }
+
+    /**
+     * Returns the projection for a comma separated list of property names, all properties
+     * when the list is empty.
+     */
+    public UserProjection getProjection(String fields) {
+        EnumSet<UserField> requested = EnumSet.noneOf(UserField.class);
+        if (fields == null || fields.isBlank()) {
+            requested = EnumSet.allOf(UserField.class);
+        } else {
+            for (String name : fields.split(",")) {
+                UserField field = FIELDS_BY_NAME.get(name.trim());
+                if (field == null) {
+                    throw new UnknownFieldException("Unknown user field '" + name.trim()
+                            + "', available fields are " + FIELDS_BY_NAME.keySet());
+                }
+                requested.add(field);
+            }
+        }
+        return projections.computeIfAbsent(requested, UserProjection::new);
+    }
+
+    public byte[] write(User user, UserProjection projection) {
+        if (!projection.isComplete() || !userJsonCache.isEnabled()) {
+            return serialize(user, projection);
+        }
+        byte[] json = userJsonCache.get(user);
+        if (json == null) {
+            json = serialize(user, projection);
+            userJsonCache.put(user, json);
+        }
+        return json;
+    }
+
+    /**
+     * Writes a JSON array of users. With the JSON cache enabled, complete users are
+     * assembled from their cached bytes instead of being serialized again.
+     */
+    public byte[] write(List<User> users, UserProjection projection) {
+        if (projection.isComplete() && userJsonCache.isEnabled()) {
+            return writeCached(users, projection);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 + users.size() * 192);
+        try (JsonGenerator generator = jsonFactory.createGenerator(out)) {
+            generator.writeStartArray();
+            for (User user : users) {
+                projection.write(generator, user);
+            }
+            generator.writeEndArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't serialize users", e);
+        }
+        return out.toByteArray();
+    }
+
+    private byte[] writeCached(List<User> users, UserProjection projection) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 + users.size() * 192);
+        out.write('[');
+        for (int i = 0; i < users.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.writeBytes(write(users.get(i), projection));
+        }
+        out.write(']');
+        return out.toByteArray();
+    }
+
+    private byte[] serialize(User user, UserProjection projection) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        try (JsonGenerator generator = jsonFactory.createGenerator(out)) {
+            projection.write(generator, user);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't serialize user " + user.getEmail(), e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,38 @@
+package com.usermanagement.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.usermanagement.model.User;
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Serializer prepared once per set of requested fields. Property names are encoded up front
+ * and every user is written by walking the fixed list of accessors.
+ */
+public class UserProjection {
+    private final UserField[] fields;
+    private final SerializableString[] names;
+
+    UserProjection(Set<UserField> fields) {
+        this.fields = fields.toArray(new UserField[0]);
+        this.names = new SerializableString[this.fields.length];
+        for (int i = 0; i < this.fields.length; i++) {
+            names[i] = new SerializedString(this.fields[i].getPropertyName());
+        }
+    }
+
+    public boolean isComplete() {
+        return fields.length == UserField.values().length;
+    }
+
+    public void write(JsonGenerator generator, User user) throws IOException {
+        generator.writeStartObject();
+        for (int i = 0; i < fields.length; i++) {
+            generator.writeFieldName(names[i]);
+            fields[i].writeValue(generator, user);
+        }
+        generator.writeEndObject();
+    }
+}
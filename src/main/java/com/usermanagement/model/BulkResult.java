@@ -0,0 +1,30 @@
+package com.usermanagement.model;
+
+public class BulkResult {
+    private long affected;
+    private boolean dryRun;
+
+    public BulkResult() {
+    }
+
+    public BulkResult(long affected, boolean dryRun) {
+        this.affected = affected;
+        this.dryRun = dryRun;
+    }
+
+    public long getAffected() {
+        return affected;
+    }
+
+    public void setAffected(long affected) {
+        this.affected = affected;
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    public void setDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+}
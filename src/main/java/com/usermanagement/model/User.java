@@ -1,6 +1,7 @@
 package com.usermanagement.model;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -22,6 +23,8 @@ public class User {
     private LocalDate birthDate;
     private String address;
     private String phoneNumber;
+    @JsonIgnore
+    private Long version;
 
     public User() {
     }
@@ -74,6 +77,14 @@ public class User {
         this.phoneNumber = phoneNumber;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -1,14 +1,20 @@
 package com.usermanagement.service;
 
+import com.usermanagement.model.BulkResult;
 import com.usermanagement.model.User;
+import com.usermanagement.model.UserQuery;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
 public interface UserService {
     User create(User user);
-    User updateFields(String email, Map<String, Object> fields);
-    User updateAllFields(String email, User user);
-    void deleteUser(String email);
+    User getUser(String email);
+    User updateFields(String email, Map<String, Object> fields, Long expectedVersion);
+    User updateAllFields(String email, User user, Long expectedVersion);
+    void deleteUser(String email, Long expectedVersion);
     List<User> getUsersByBirthDateRange(LocalDate from, LocalDate to);
+    List<User> findUsers(UserQuery query);
+    BulkResult deleteUsers(UserQuery criteria, boolean dryRun);
+    BulkResult updateUsers(UserQuery criteria, Map<String, Object> fields, boolean dryRun);
 }
@@ -0,0 +1,185 @@
+package com.usermanagement.service.impl;
+
+import com.usermanagement.cluster.ClusterClient;
+import com.usermanagement.cluster.ClusterMembership;
+import com.usermanagement.model.BulkResult;
+import com.usermanagement.model.User;
+import com.usermanagement.model.UserQuery;
+import com.usermanagement.service.UserService;
+import com.usermanagement.service.query.QueryPlanner;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+/**
+ * Routes point operations to the node owning the email and scatters range queries to all
+ * nodes, gathering their results. Operations owned by this node go to the local service.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "cluster.enabled", havingValue = "true")
+public class ClusteredUserService implements UserService {
+    private final UserServiceImpl localService;
+    private final ClusterMembership membership;
+    private final ClusterClient clusterClient;
+    private final QueryPlanner queryPlanner;
+    private final ExecutorService scatterExecutor = Executors.newCachedThreadPool();
+
+    @Autowired
+    public ClusteredUserService(
+            UserServiceImpl localService,
+            ClusterMembership membership,
+            ClusterClient clusterClient,
+            QueryPlanner queryPlanner
+    ) {
+        this.localService = localService;
+        this.membership = membership;
+        this.clusterClient = clusterClient;
+        this.queryPlanner = queryPlanner;
+    }
+
+    @Override
+    public User create(User user) {
+        String owner = membership.ownerOf(user.getEmail());
+        return membership.isSelf(owner)
+                ? localService.create(user)
+                : clusterClient.create(owner, user);
+    }
+
+    @Override
+    public User getUser(String email) {
+        String owner = membership.ownerOf(email);
+        return membership.isSelf(owner)
+                ? localService.getUser(email)
+                : clusterClient.getUser(owner, email);
+    }
+
+    @Override
+    public User updateFields(String email, Map<String, Object> fields, Long expectedVersion) {
+        String owner = membership.ownerOf(email);
+        return membership.isSelf(owner)
+                ? localService.updateFields(email, fields, expectedVersion)
+                : clusterClient.updateFields(owner, email, fields, expectedVersion);
+    }
+
+    @Override
+    public User updateAllFields(String email, User user, Long expectedVersion) {
+        String owner = membership.ownerOf(email);
+        return membership.isSelf(owner)
+                ? localService.updateAllFields(email, user, expectedVersion)
+                : clusterClient.updateAllFields(owner, email, user, expectedVersion);
+    }
+
+    @Override
+    public void deleteUser(String email, Long expectedVersion) {
+        String owner = membership.ownerOf(email);
+        if (membership.isSelf(owner)) {
+            localService.deleteUser(email, expectedVersion);
+        } else {
+            clusterClient.deleteUser(owner, email, expectedVersion);
+        }
+    }
+
+    @Override
+    public List<User> getUsersByBirthDateRange(LocalDate from, LocalDate to) {
+        return scatter(() -> localService.getUsersByBirthDateRange(from, to),
+                node -> clusterClient.getUsersByBirthDateRange(node, from, to));
+    }
+
+    @Override
+    public List<User> findUsers(UserQuery query) {
+        if (query.getEmail() != null) {
+            String owner = membership.ownerOf(query.getEmail());
+            return membership.isSelf(owner)
+                    ? localService.findUsers(query)
+                    : clusterClient.findUsers(owner, query);
+        }
+        List<User> users = scatter(() -> localService.findUsers(query),
+                node -> clusterClient.findUsers(node, query));
+        int limit = queryPlanner.getLimit(query);
+        return users.size() > limit ? users.subList(0, limit) : users;
+    }
+
+    @Override
+    public BulkResult deleteUsers(UserQuery criteria, boolean dryRun) {
+        return applyToMatching(criteria, dryRun,
+                () -> localService.deleteUsers(criteria, dryRun),
+                node -> clusterClient.deleteUsers(node, criteria, dryRun));
+    }
+
+    @Override
+    public BulkResult updateUsers(UserQuery criteria, Map<String, Object> fields, boolean dryRun) {
+        return applyToMatching(criteria, dryRun,
+                () -> localService.updateUsers(criteria, fields, dryRun),
+                node -> clusterClient.updateUsers(node, criteria, fields, dryRun));
+    }
+
+    @PreDestroy
+    public void close() {
+        scatterExecutor.shutdownNow();
+    }
+
+    private BulkResult applyToMatching(
+            UserQuery criteria,
+            boolean dryRun,
+            Supplier<BulkResult> local,
+            Function<String, BulkResult> remote
+    ) {
+        if (criteria.getEmail() != null) {
+            String owner = membership.ownerOf(criteria.getEmail());
+            return membership.isSelf(owner) ? local.get() : remote.apply(owner);
+        }
+        long affected = gather(local, remote).stream()
+                .mapToLong(BulkResult::getAffected)
+                .sum();
+        return new BulkResult(affected, dryRun);
+    }
+
+    /**
+     * Gathers the users of all nodes. A user found on several nodes, such as one left behind
+     * by a rebalance, is returned once in its highest version.
+     */
+    private List<User> scatter(Supplier<List<User>> local, Function<String, List<User>> remote) {
+        Map<String, User> users = new LinkedHashMap<>();
+        for (List<User> nodeUsers : gather(local, remote)) {
+            for (User user : nodeUsers) {
+                users.merge(user.getEmail(), user,
+                        (found, other) -> other.getVersion() > found.getVersion() ? other : found);
+            }
+        }
+        return new ArrayList<>(users.values());
+    }
+
+    private <T> List<T> gather(Supplier<T> local, Function<String, T> remote) {
+        List<CompletableFuture<T>> futures = membership.getMembers().stream()
+                .map(node -> CompletableFuture.supplyAsync(
+                        () -> membership.isSelf(node) ? local.get() : remote.apply(node),
+                        scatterExecutor))
+                .toList();
+        List<T> results = new ArrayList<>();
+        for (CompletableFuture<T> future : futures) {
+            try {
+                results.add(future.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+        return results;
+    }
+}
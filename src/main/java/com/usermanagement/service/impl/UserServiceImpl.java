@@ -1,25 +1,64 @@
 package com.usermanagement.service.impl;
 
+import com.usermanagement.db.UserChange;
+import com.usermanagement.db.UserRecord;
 import com.usermanagement.db.UserStorage;
 import com.usermanagement.exception.DateCheckingException;
+import com.usermanagement.exception.InvalidCriteriaException;
+import com.usermanagement.exception.UnknownFieldException;
+import com.usermanagement.exception.UserAlreadyExistsException;
 import com.usermanagement.exception.UserNotFoundException;
+import com.usermanagement.exception.VersionConflictException;
+import com.usermanagement.json.UserJsonCache;
+import com.usermanagement.model.BulkResult;
 import com.usermanagement.model.User;
+import com.usermanagement.model.UserQuery;
 import com.usermanagement.service.UserService;
+import com.usermanagement.service.query.QueryPlan;
+import com.usermanagement.service.query.QueryPlanner;
 import java.lang.reflect.Field;
 import java.time.LocalDate;
 import java.time.Period;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.ReflectionUtils;
 
 @Service
 public class UserServiceImpl implements UserService {
+    private static final int BULK_BATCH_SIZE = 500;
+    private static final Set<String> BULK_FIELDS =
+            Set.of("firstName", "lastName", "birthDate", "address", "phoneNumber");
+    private final UserStorage userStorage;
+    private final QueryPlanner queryPlanner;
+    private final UserJsonCache userJsonCache;
     @Value("${age.checking}")
     private int minRequiredAge;
 
+    @Autowired
+    public UserServiceImpl(
+            UserStorage userStorage,
+            QueryPlanner queryPlanner,
+            UserJsonCache userJsonCache
+    ) {
+        this.userStorage = userStorage;
+        this.queryPlanner = queryPlanner;
+        this.userJsonCache = userJsonCache;
+    }
+
     @Override
     public User create(User user) {
         int age = Period.between(user.getBirthDate(), LocalDate.now()).getYears();
@@ -28,19 +67,161 @@ public class UserServiceImpl implements UserService {
                     "For registration you need to be at least 18 years old"
             );
         }
-        UserStorage.usersDB.add(user);
-        return user;
+        UserRecord record = UserRecord.of(user, userStorage.nextVersion());
+        if (!userStorage.insert(record)) {
+            throw new UserAlreadyExistsException(
+                    "User with email: " + user.getEmail() + " already exists."
+            );
+        }
+        userJsonCache.invalidate(record.email());
+        return record.toUser();
+    }
+
+    @Override
+    public User getUser(String email) {
+        return getRecord(email).toUser();
+    }
+
+    @Override
+    public User updateFields(String email, Map<String, Object> fields, Long expectedVersion) {
+        while (true) {
+            UserRecord current = getRecord(email);
+            checkVersion(current, expectedVersion);
+            UserRecord updated = current.next(applyFields(current, fields),
+                    userStorage.nextVersion());
+            if (userStorage.replace(current, updated)) {
+                userJsonCache.invalidate(email);
+                return updated.toUser();
+            }
+        }
+    }
+
+    @Override
+    public User updateAllFields(String email, User user, Long expectedVersion) {
+        while (true) {
+            UserRecord current = getRecord(email);
+            checkVersion(current, expectedVersion);
+            UserRecord updated = current.next(user, userStorage.nextVersion());
+            if (userStorage.replace(current, updated)) {
+                userJsonCache.invalidate(email);
+                return updated.toUser();
+            }
+        }
     }
 
     @Override
-    public User updateFields(String email, Map<String, Object> fields) {
-        User user = getUser(email);
+    public void deleteUser(String email, Long expectedVersion) {
+        while (true) {
+            UserRecord current = getRecord(email);
+            checkVersion(current, expectedVersion);
+            if (userStorage.remove(current)) {
+                userJsonCache.invalidate(email);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public List<User> getUsersByBirthDateRange(LocalDate from, LocalDate to) {
+        checkDateRange(from, to);
+        return userStorage.streamByBirthDate(from, to)
+                .filter(u -> u.birthDate().isAfter(from) && u.birthDate().isBefore(to))
+                .map(UserRecord::toUser)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<User> findUsers(UserQuery query) {
+        if (query.getFrom() != null && query.getTo() != null) {
+            checkDateRange(query.getFrom(), query.getTo());
+        }
+        QueryPlan plan = queryPlanner.plan(query);
+        return queryPlanner.execute(plan, query)
+                .map(UserRecord::toUser)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public BulkResult deleteUsers(UserQuery criteria, boolean dryRun) {
+        return applyToMatching(criteria, dryRun, current -> null);
+    }
+
+    @Override
+    public BulkResult updateUsers(UserQuery criteria, Map<String, Object> fields, boolean dryRun) {
+        Map<String, Object> parsed = parseFields(fields);
+        return applyToMatching(criteria, dryRun,
+                current -> current.next(applyFields(current, parsed), userStorage.nextVersion()));
+    }
+
+    /**
+     * Applies the change to every user matching the criteria in a single pass over the
+     * planned access path. Changes are written in batches, users changed concurrently are
+     * re-read and changed again while they still match.
+     */
+    private BulkResult applyToMatching(
+            UserQuery criteria,
+            boolean dryRun,
+            UnaryOperator<UserRecord> change
+    ) {
+        checkCriteria(criteria);
+        QueryPlan plan = queryPlanner.plan(criteria, Integer.MAX_VALUE);
+        if (dryRun) {
+            return new BulkResult(queryPlanner.execute(plan, criteria).count(), true);
+        }
+        long affected = 0;
+        List<UserChange> batch = new ArrayList<>(BULK_BATCH_SIZE);
+        Iterator<UserRecord> matching = queryPlanner.execute(plan, criteria).iterator();
+        while (matching.hasNext()) {
+            UserRecord current = matching.next();
+            batch.add(new UserChange(current, change.apply(current)));
+            if (batch.size() == BULK_BATCH_SIZE || !matching.hasNext()) {
+                affected += applyBatch(batch, plan, change);
+                batch.clear();
+            }
+        }
+        return new BulkResult(affected, false);
+    }
+
+    private long applyBatch(
+            List<UserChange> batch,
+            QueryPlan plan,
+            UnaryOperator<UserRecord> change
+    ) {
+        List<UserChange> failed = userStorage.applyAll(batch);
+        long affected = batch.size() - failed.size();
+        Set<UserChange> conflicts = Collections.newSetFromMap(new IdentityHashMap<>());
+        conflicts.addAll(failed);
+        batch.stream()
+                .filter(c -> !conflicts.contains(c))
+                .forEach(c -> userJsonCache.invalidate(c.expected().email()));
+        for (UserChange conflict : failed) {
+            String email = conflict.expected().email();
+            while (true) {
+                UserRecord current = userStorage.find(email).orElse(null);
+                if (current == null || !plan.filter().test(current)) {
+                    break;
+                }
+                UserChange retry = new UserChange(current, change.apply(current));
+                if (userStorage.applyAll(List.of(retry)).isEmpty()) {
+                    userJsonCache.invalidate(email);
+                    affected++;
+                    break;
+                }
+            }
+        }
+        return affected;
+    }
+
+    private User applyFields(UserRecord current, Map<String, Object> fields) {
+        User user = current.toUser();
         for (Map.Entry<String, Object> f : fields.entrySet()) {
             Field field = ReflectionUtils.findField(User.class, f.getKey());
             assert field != null;
             field.setAccessible(true);
             if (f.getKey().equals("birthDate")) {
-                LocalDate birthDate = LocalDate.parse(f.getValue().toString());
+                LocalDate birthDate = f.getValue() instanceof LocalDate date
+                        ? date
+                        : LocalDate.parse(f.getValue().toString());
                 ReflectionUtils.setField(field, user, birthDate);
             } else {
                 ReflectionUtils.setField(field, user, f.getValue());
@@ -49,40 +230,70 @@ public class UserServiceImpl implements UserService {
         return user;
     }
 
-    @Override
-    public User updateAllFields(String email, User user) {
-        User userFromDB = getUser(email);
-        userFromDB.setFirstName(user.getFirstName());
-        userFromDB.setLastName(user.getLastName());
-        userFromDB.setBirthDate(user.getBirthDate());
-        userFromDB.setAddress(user.getAddress());
-        userFromDB.setPhoneNumber(user.getPhoneNumber());
-        return userFromDB;
+    /**
+     * Checks the names and values of a bulk patch before any user is read, so a bad patch
+     * is rejected as a whole instead of failing on the first matching user.
+     */
+    private Map<String, Object> parseFields(Map<String, Object> fields) {
+        Map<String, Object> parsed = new HashMap<>();
+        for (Map.Entry<String, Object> f : fields.entrySet()) {
+            String name = f.getKey();
+            Object value = f.getValue();
+            if (!BULK_FIELDS.contains(name)) {
+                throw new UnknownFieldException("User field '" + name + "' can't be updated");
+            }
+            if (name.equals("birthDate")) {
+                try {
+                    parsed.put(name, LocalDate.parse(String.valueOf(value)));
+                } catch (DateTimeParseException e) {
+                    throw new DateCheckingException(
+                            "Please, enter valid birthdate instead of '" + value + "'", e
+                    );
+                }
+            } else if (value == null || value instanceof String) {
+                parsed.put(name, value);
+            } else {
+                throw new UnknownFieldException(
+                        "User field '" + name + "' expects a text value instead of " + value
+                );
+            }
+        }
+        return parsed;
     }
 
-    @Override
-    public void deleteUser(String email) {
-        User user = getUser(email);
-        UserStorage.usersDB.remove(user);
+    private void checkCriteria(UserQuery criteria) {
+        if (criteria.getFrom() != null && criteria.getTo() != null) {
+            checkDateRange(criteria.getFrom(), criteria.getTo());
+        }
+        boolean empty = Stream.of(criteria.getEmail(), criteria.getFirstName(),
+                        criteria.getLastName(), criteria.getFrom(), criteria.getTo(),
+                        criteria.getAddressContains(), criteria.getPhonePrefix())
+                .allMatch(Objects::isNull);
+        if (empty) {
+            throw new InvalidCriteriaException(
+                    "Please, enter birthdate range or other criteria of the users to change"
+            );
+        }
     }
 
-    @Override
-    public List<User> getUsersByBirthDateRange(LocalDate from, LocalDate to) {
+    private UserRecord getRecord(String email) {
+        return userStorage.find(email).orElseThrow(
+                () -> new UserNotFoundException("User with email: " + email + " does not exist.")
+        );
+    }
+
+    private void checkDateRange(LocalDate from, LocalDate to) {
         if (!from.isBefore(to)) {
             throw new DateCheckingException("Please, enter valid birthdate range. Date 'from' "
             + from + " should be before date 'to' " + to);
         }
-        return UserStorage.usersDB.stream()
-                .filter(u -> u.getBirthDate().isAfter(from) && u.getBirthDate().isBefore(to))
-                .collect(Collectors.toList());
     }
 
-    private User getUser(String email) {
-        return UserStorage.usersDB.stream()
-                .filter(u -> u.getEmail().equals(email))
-                .findAny()
-                .orElseThrow(
-                () -> new UserNotFoundException("User with email: " + email + " does not exist.")
-        );
+    private void checkVersion(UserRecord current, Long expectedVersion) {
+        if (expectedVersion != null && current.version() != expectedVersion) {
+            throw new VersionConflictException("User with email: " + current.email()
+                    + " was modified concurrently. Expected version " + expectedVersion
+                    + ", current version " + current.version() + ".");
+        }
     }
 }
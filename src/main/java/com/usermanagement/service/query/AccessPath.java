@@ -0,0 +1,16 @@
+package com.usermanagement.service.query;
+
+public enum AccessPath {
+    /**
+     * Point lookup by the primary email key.
+     */
+    EMAIL_LOOKUP,
+    /**
+     * Scan restricted to the storage tiers whose birthdate bounds overlap the range.
+     */
+    BIRTH_DATE_RANGE,
+    /**
+     * Parallel scan over all users when no index narrows the query.
+     */
+    FULL_SCAN
+}
@@ -0,0 +1,12 @@
+package com.usermanagement.service.query;
+
+import com.usermanagement.db.UserRecord;
+import java.util.function.Predicate;
+
+/**
+ * Access path chosen for a query with the number of users it is expected to read, and the
+ * predicates left to be applied while streaming the users it yields.
+ */
+public record QueryPlan(AccessPath accessPath, long estimatedRows, Predicate<UserRecord> filter,
+                        int limit) {
+}
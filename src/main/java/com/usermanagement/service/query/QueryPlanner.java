@@ -0,0 +1,95 @@
+package com.usermanagement.service.query;
+
+import com.usermanagement.db.UserRecord;
+import com.usermanagement.db.UserStorage;
+import com.usermanagement.model.UserQuery;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Picks the most selective access path available for a query: the email key, then the
+ * birthdate bounds of the storage tiers when they exclude anything, otherwise a parallel
+ * scan. All remaining criteria are applied as a filter while streaming, and reading stops
+ * as soon as the limit is reached.
+ */
+@Component
+public class QueryPlanner {
+    private final UserStorage userStorage;
+    @Value("${query.default-limit}")
+    private int defaultLimit;
+    @Value("${query.max-limit}")
+    private int maxLimit;
+
+    @Autowired
+    public QueryPlanner(UserStorage userStorage) {
+        this.userStorage = userStorage;
+    }
+
+    public QueryPlan plan(UserQuery query) {
+        return plan(query, getLimit(query));
+    }
+
+    public QueryPlan plan(UserQuery query, int limit) {
+        Predicate<UserRecord> filter = buildFilter(query);
+        if (query.getEmail() != null) {
+            return new QueryPlan(AccessPath.EMAIL_LOOKUP, 1, filter, limit);
+        }
+        long total = userStorage.estimateCount(null, null);
+        if (query.getFrom() != null || query.getTo() != null) {
+            long inRange = userStorage.estimateCount(query.getFrom(), query.getTo());
+            if (inRange < total) {
+                return new QueryPlan(AccessPath.BIRTH_DATE_RANGE, inRange, filter, limit);
+            }
+        }
+        return new QueryPlan(AccessPath.FULL_SCAN, total, filter, limit);
+    }
+
+    public int getLimit(UserQuery query) {
+        return query.getLimit() == null ? defaultLimit : Math.min(query.getLimit(), maxLimit);
+    }
+
+    public Stream<UserRecord> execute(QueryPlan plan, UserQuery query) {
+        Stream<UserRecord> source = switch (plan.accessPath()) {
+            case EMAIL_LOOKUP -> userStorage.find(query.getEmail()).stream();
+            case BIRTH_DATE_RANGE -> userStorage.streamByBirthDate(query.getFrom(), query.getTo());
+            case FULL_SCAN -> userStorage.stream().parallel().unordered();
+        };
+        return source.filter(plan.filter()).limit(plan.limit());
+    }
+
+    private Predicate<UserRecord> buildFilter(UserQuery query) {
+        Predicate<UserRecord> filter = u -> true;
+        if (query.getEmail() != null) {
+            filter = filter.and(u -> u.email().equals(query.getEmail()));
+        }
+        if (query.getFirstName() != null) {
+            filter = filter.and(u -> query.getFirstName().equalsIgnoreCase(u.firstName()));
+        }
+        if (query.getLastName() != null) {
+            filter = filter.and(u -> query.getLastName().equalsIgnoreCase(u.lastName()));
+        }
+        if (query.getFrom() != null) {
+            LocalDate from = query.getFrom();
+            filter = filter.and(u -> u.birthDate() != null && u.birthDate().isAfter(from));
+        }
+        if (query.getTo() != null) {
+            LocalDate to = query.getTo();
+            filter = filter.and(u -> u.birthDate() != null && u.birthDate().isBefore(to));
+        }
+        if (query.getAddressContains() != null) {
+            String part = query.getAddressContains().toLowerCase(Locale.ROOT);
+            filter = filter.and(u -> u.address() != null
+                    && u.address().toLowerCase(Locale.ROOT).contains(part));
+        }
+        if (query.getPhonePrefix() != null) {
+            filter = filter.and(u -> u.phoneNumber() != null
+                    && u.phoneNumber().startsWith(query.getPhonePrefix()));
+        }
+        return filter;
+    }
+}
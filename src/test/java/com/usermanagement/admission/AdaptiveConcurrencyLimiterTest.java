@@ -0,0 +1,93 @@
+package com.usermanagement.admission;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveConcurrencyLimiterTest {
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SLOW = TimeUnit.SECONDS.toNanos(5);
+
+    @Test
+    @DisplayName("Range requests are admitted only within their share of the limit")
+    void tryAcquire_rangeRequests_limitedByRangeShare() {
+        AdaptiveConcurrencyLimiter limiter = newLimiter(10);
+        for (int i = 0; i < 5; i++) {
+            Assertions.assertTrue(limiter.tryAcquire(Priority.RANGE));
+        }
+        Assertions.assertFalse(limiter.tryAcquire(Priority.RANGE));
+        for (int i = 0; i < 5; i++) {
+            Assertions.assertTrue(limiter.tryAcquire(Priority.POINT));
+        }
+        Assertions.assertFalse(limiter.tryAcquire(Priority.POINT));
+        Assertions.assertEquals(10, limiter.getInFlight());
+    }
+
+    @Test
+    @DisplayName("Range requests never take the last slot, even when the limit is one")
+    void tryAcquire_limitOfOne_rangeRejectedPointAdmitted() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, 0.5, 0.9,
+                TimeUnit.MILLISECONDS.toNanos(100), TimeUnit.SECONDS.toNanos(1));
+        Assertions.assertFalse(limiter.tryAcquire(Priority.RANGE));
+        Assertions.assertTrue(limiter.tryAcquire(Priority.POINT));
+        Assertions.assertFalse(limiter.tryAcquire(Priority.POINT));
+    }
+
+    @Test
+    @DisplayName("Range requests with a full share leave one slot for point requests")
+    void tryAcquire_fullRangeShare_leavesPointSlot() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 2, 2, 1.0, 0.9,
+                TimeUnit.MILLISECONDS.toNanos(100), TimeUnit.SECONDS.toNanos(1));
+        Assertions.assertTrue(limiter.tryAcquire(Priority.RANGE));
+        Assertions.assertFalse(limiter.tryAcquire(Priority.RANGE));
+        Assertions.assertTrue(limiter.tryAcquire(Priority.POINT));
+    }
+
+    @Test
+    @DisplayName("Slow responses shrink the limit multiplicatively down to the minimum")
+    void release_slowResponses_decreasesLimit() {
+        AdaptiveConcurrencyLimiter limiter = newLimiter(10);
+        limiter.tryAcquire(Priority.POINT);
+        limiter.release(Priority.POINT, SLOW);
+        Assertions.assertEquals(9, limiter.getLimit());
+        for (int i = 0; i < 100; i++) {
+            limiter.tryAcquire(Priority.POINT);
+            limiter.release(Priority.POINT, SLOW);
+        }
+        Assertions.assertEquals(2, limiter.getLimit());
+        Assertions.assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    @DisplayName("Fast responses under load grow the limit additively up to the maximum")
+    void release_fastResponsesUnderLoad_increasesLimit() {
+        AdaptiveConcurrencyLimiter limiter = newLimiter(4);
+        for (int round = 0; round < 200; round++) {
+            int acquired = 0;
+            while (limiter.tryAcquire(Priority.POINT)) {
+                acquired++;
+            }
+            for (int i = 0; i < acquired; i++) {
+                limiter.release(Priority.POINT, FAST);
+            }
+        }
+        Assertions.assertEquals(20, limiter.getLimit());
+    }
+
+    @Test
+    @DisplayName("Fast responses without load leave the limit unchanged")
+    void release_fastResponsesWithoutLoad_keepsLimit() {
+        AdaptiveConcurrencyLimiter limiter = newLimiter(10);
+        for (int i = 0; i < 100; i++) {
+            limiter.tryAcquire(Priority.POINT);
+            limiter.release(Priority.POINT, FAST);
+        }
+        Assertions.assertEquals(10, limiter.getLimit());
+    }
+
+    private AdaptiveConcurrencyLimiter newLimiter(int initialLimit) {
+        return new AdaptiveConcurrencyLimiter(initialLimit, 2, 20, 0.5, 0.9,
+                TimeUnit.MILLISECONDS.toNanos(100), TimeUnit.SECONDS.toNanos(1));
+    }
+}
@@ -0,0 +1,245 @@
+package com.usermanagement.cluster;
+
+import com.usermanagement.Application;
+import com.usermanagement.db.UserRecord;
+import com.usermanagement.db.UserStorage;
+import com.usermanagement.model.User;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestClient;
+
+class ClusterTest {
+    private static final int USERS = 30;
+    private final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+    private final RestClient restClient = RestClient.create();
+
+    @AfterEach
+    void tearDown() {
+        nodes.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    @DisplayName("Point operations through any node are routed to the owning node")
+    void pointOperations_anyNode_routedToOwner() {
+        ConfigurableApplicationContext first = startNode("");
+        ConfigurableApplicationContext second = startNode(url(first));
+        Assertions.assertEquals(2, membership(first).getMembers().size());
+        Assertions.assertEquals(2, membership(second).getMembers().size());
+        createUsers(first);
+        for (int i = 0; i < USERS; i++) {
+            String email = email(i);
+            ResponseEntity<User> response = restClient.get()
+                    .uri(url(second) + "/users/{email}", email)
+                    .retrieve()
+                    .toEntity(User.class);
+            Assertions.assertEquals(email, response.getBody().getEmail());
+            String owner = membership(first).ownerOf(email);
+            ConfigurableApplicationContext ownerNode = owner.equals(url(first)) ? first : second;
+            ConfigurableApplicationContext otherNode = ownerNode == first ? second : first;
+            Assertions.assertEquals("\"" + storage(ownerNode).find(email).orElseThrow().version()
+                    + "\"", response.getHeaders().getETag());
+            Assertions.assertTrue(storage(ownerNode).find(email).isPresent());
+            Assertions.assertTrue(storage(otherNode).find(email).isEmpty());
+        }
+        Assertions.assertTrue(storage(first).size() > 0);
+        Assertions.assertTrue(storage(second).size() > 0);
+        HttpClientErrorException exception = Assertions.assertThrows(
+                HttpClientErrorException.class, () -> restClient.put()
+                        .uri(url(first) + "/users/{email}", email(0))
+                        .header(HttpHeaders.IF_MATCH, "\"5\"")
+                        .body(user(0))
+                        .retrieve()
+                        .toBodilessEntity());
+        Assertions.assertEquals(HttpStatus.PRECONDITION_FAILED, exception.getStatusCode());
+    }
+
+    @Test
+    @DisplayName("Forwarded operation rejected by the owner, returns unavailable with Retry-After")
+    void forwardedOperation_ownerOverloaded_returnsServiceUnavailable() {
+        ConfigurableApplicationContext first = startNode("");
+        ConfigurableApplicationContext second = startNode(url(first), "--admission.min-limit=0",
+                "--admission.initial-limit=0", "--admission.max-limit=0",
+                "--admission.retry-after-seconds=7");
+        String email = IntStream.range(0, USERS)
+                .mapToObj(this::email)
+                .filter(e -> membership(first).ownerOf(e).equals(url(second)))
+                .findFirst()
+                .orElseThrow();
+        HttpServerErrorException exception = Assertions.assertThrows(
+                HttpServerErrorException.class, () -> restClient.get()
+                        .uri(url(first) + "/users/{email}", email)
+                        .retrieve()
+                        .toBodilessEntity());
+        Assertions.assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatusCode());
+        Assertions.assertEquals("7",
+                exception.getResponseHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+    }
+
+    @Test
+    @DisplayName("Forwarded operation for an email the node doesn't own, returns unavailable")
+    void forwardedOperation_notOwner_returnsServiceUnavailable() {
+        ConfigurableApplicationContext first = startNode("");
+        ConfigurableApplicationContext second = startNode(url(first));
+        User user = IntStream.range(0, USERS)
+                .mapToObj(this::user)
+                .filter(u -> membership(first).ownerOf(u.getEmail()).equals(url(second)))
+                .findFirst()
+                .orElseThrow();
+        HttpServerErrorException exception = Assertions.assertThrows(
+                HttpServerErrorException.class, () -> restClient.post()
+                        .uri(url(first) + "/internal/cluster/users")
+                        .body(user)
+                        .retrieve()
+                        .toBodilessEntity());
+        Assertions.assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatusCode());
+        Assertions.assertNotNull(exception.getResponseHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        Assertions.assertTrue(storage(first).find(user.getEmail()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Birthdate range query is scattered to all nodes and gathered")
+    void getByBirthDateRange_severalNodes_returnsUsersOfAllNodes() {
+        ConfigurableApplicationContext first = startNode("");
+        ConfigurableApplicationContext second = startNode(url(first));
+        ConfigurableApplicationContext third = startNode(url(second));
+        Assertions.assertEquals(3, membership(first).getMembers().size());
+        createUsers(second);
+        String owner = membership(first).ownerOf(email(0));
+        ConfigurableApplicationContext stale = owner.equals(url(first)) ? second : first;
+        User staleUser = user(0);
+        staleUser.setFirstName("Stale");
+        storage(stale).insert(UserRecord.of(staleUser, 0));
+        List<User> users = restClient.get()
+                .uri(url(third) + "/users?from=1980-01-01&to=2000-01-01")
+                .retrieve()
+                .body(new ParameterizedTypeReference<>() {
+                });
+        Assertions.assertEquals(USERS, users.size());
+        Assertions.assertTrue(users.stream()
+                .filter(u -> u.getEmail().equals(email(0)))
+                .allMatch(u -> u.getFirstName().equals(user(0).getFirstName())));
+        List<User> found = restClient.get()
+                .uri(url(first) + "/users/search?lastName=Collins&limit=5")
+                .retrieve()
+                .body(new ParameterizedTypeReference<>() {
+                });
+        Assertions.assertEquals(5, found.size());
+    }
+
+    @Test
+    @DisplayName("Users are streamed to the new owner on join and handed over on leave")
+    void rebalance_nodeJoinsAndLeaves_usersMoved() throws InterruptedException {
+        ConfigurableApplicationContext first = startNode("", "--cluster.handoff-batch-size=4");
+        createUsers(first);
+        Assertions.assertEquals(USERS, storage(first).size());
+        ConfigurableApplicationContext second = startNode(url(first));
+        Assertions.assertEquals(2, membership(first).getMembers().size());
+        awaitHandoff(first, second);
+        int moved = storage(second).size();
+        Assertions.assertTrue(moved > 0);
+        Assertions.assertEquals(USERS, storage(first).size() + moved);
+        second.close();
+        Assertions.assertEquals(1, membership(first).getMembers().size());
+        Assertions.assertEquals(USERS, storage(first).size());
+    }
+
+    @Test
+    @DisplayName("Import handed over users, keeps the highest version and reports older ones")
+    void importUsers_existingVersions_keepsHighestVersion() {
+        ConfigurableApplicationContext node = startNode("");
+        UserRecord current = UserRecord.of(user(0), 5);
+        storage(node).insert(current);
+        UserRecord older = UserRecord.of(user(0), 3);
+        UserRecord newer = UserRecord.of(user(1), 7);
+        storage(node).insert(UserRecord.of(user(1), 2));
+        Assertions.assertEquals(List.of(email(0)),
+                membership(node).importUsers(List.of(older, newer, UserRecord.of(user(2), 1))));
+        Assertions.assertEquals(current, storage(node).find(email(0)).orElseThrow());
+        Assertions.assertEquals(newer, storage(node).find(email(1)).orElseThrow());
+        Assertions.assertTrue(storage(node).find(email(2)).isPresent());
+        Assertions.assertEquals(List.of(), membership(node).importUsers(List.of(newer)));
+    }
+
+    private ConfigurableApplicationContext startNode(String seeds, String... args) {
+        List<String> arguments = new ArrayList<>(List.of(
+                "--server.port=0", "--cluster.enabled=true", "--cluster.seeds=" + seeds));
+        arguments.addAll(List.of(args));
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+                .run(arguments.toArray(String[]::new));
+        nodes.add(context);
+        return context;
+    }
+
+    private void awaitHandoff(ConfigurableApplicationContext first,
+                              ConfigurableApplicationContext second) throws InterruptedException {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            boolean done = true;
+            for (int i = 0; i < USERS; i++) {
+                String owner = membership(first).ownerOf(email(i));
+                ConfigurableApplicationContext ownerNode = owner.equals(url(first)) ? first : second;
+                ConfigurableApplicationContext otherNode = ownerNode == first ? second : first;
+                done &= storage(ownerNode).find(email(i)).isPresent()
+                        && storage(otherNode).find(email(i)).isEmpty();
+            }
+            if (done) {
+                return;
+            }
+            Thread.sleep(100);
+        }
+        Assertions.fail("Users were not handed over to their owners");
+    }
+
+    private void createUsers(ConfigurableApplicationContext node) {
+        for (int i = 0; i < USERS; i++) {
+            restClient.post()
+                    .uri(url(node) + "/users")
+                    .body(user(i))
+                    .retrieve()
+                    .toBodilessEntity();
+        }
+    }
+
+    private String url(ConfigurableApplicationContext node) {
+        return "http://localhost:"
+                + ((ServletWebServerApplicationContext) node).getWebServer().getPort();
+    }
+
+    private ClusterMembership membership(ConfigurableApplicationContext node) {
+        return node.getBean(ClusterMembership.class);
+    }
+
+    private UserStorage storage(ConfigurableApplicationContext node) {
+        return node.getBean(UserStorage.class);
+    }
+
+    private String email(int i) {
+        return "user" + i + "@gmail.com";
+    }
+
+    private User user(int i) {
+        User user = new User();
+        user.setEmail(email(i));
+        user.setFirstName("Phillip");
+        user.setLastName("Collins");
+        user.setBirthDate(LocalDate.of(1990, Month.JANUARY, 11).plusDays(i));
+        user.setAddress("Lviv, Ploshcha Rynok, 1");
+        user.setPhoneNumber("+380671113434");
+        return user;
+    }
+}
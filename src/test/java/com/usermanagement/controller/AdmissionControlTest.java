@@ -0,0 +1,75 @@
+package com.usermanagement.controller;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import com.usermanagement.db.UserStorage;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+@SpringBootTest(properties = {
+        "admission.initial-limit=1",
+        "admission.min-limit=1",
+        "admission.max-limit=1",
+        "admission.retry-after-seconds=3"
+})
+class AdmissionControlTest {
+    private static final String URL_TEMPLATE = "/users";
+    private static MockMvc mockMvc;
+    @Autowired
+    private UserStorage userStorage;
+
+    @BeforeAll
+    static void beforeAll(@Autowired WebApplicationContext applicationContext) {
+        mockMvc = MockMvcBuilders
+                .webAppContextSetup(applicationContext)
+                .build();
+    }
+
+    @BeforeEach
+    void setUp() {
+        userStorage.clear();
+    }
+
+    @Test
+    @DisplayName("Get users by birthdate range at a limit of one, rejected as a range request")
+    void getByBirthDateRange_limitOfOne_returnsUnavailable() throws Exception {
+        mockMvc.perform(get(URL_TEMPLATE)
+                .param("from", "1990-01-01")
+                .param("to", "2000-01-01"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "3"))
+                .andExpect(content().string(containsString("range requests are limited")));
+    }
+
+    @Test
+    @DisplayName("Patch users matching a filter at a limit of one, rejected as a range request")
+    void patchMatching_limitOfOne_returnsUnavailable() throws Exception {
+        mockMvc.perform(patch(URL_TEMPLATE)
+                .param("lastName", "Smith")
+                .content("{\"address\":\"Kyiv\"}")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "3"))
+                .andExpect(content().string(containsString("range requests are limited")));
+    }
+
+    @Test
+    @DisplayName("Get user by email at a limit of one, admitted as a point request")
+    void getByEmail_limitOfOne_admitted() throws Exception {
+        mockMvc.perform(get(URL_TEMPLATE + "/bob@gmail.com"))
+                .andExpect(status().isNotFound());
+    }
+}
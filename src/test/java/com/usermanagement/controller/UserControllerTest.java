@@ -3,24 +3,30 @@ package com.usermanagement.controller;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.usermanagement.db.UserRecord;
 import com.usermanagement.db.UserStorage;
 import com.usermanagement.model.User;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.Month;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
@@ -34,6 +40,8 @@ class UserControllerTest {
     private static MockMvc mockMvc;
     @Autowired
     private ObjectMapper objectMapper;
+    @Autowired
+    private UserStorage userStorage;
 
     @BeforeAll
     static void beforeAll(
@@ -46,12 +54,12 @@ class UserControllerTest {
 
     @BeforeEach
     void setUp() {
-        UserStorage.usersDB.clear();
+        userStorage.clear();
     }
 
     @AfterAll
-    static void afterAll() {
-        UserStorage.usersDB.clear();
+    static void afterAll(@Autowired UserStorage userStorage) {
+        userStorage.clear();
     }
 
     @Test
@@ -63,6 +71,7 @@ class UserControllerTest {
                 .content(jsonRequest)
                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isCreated())
+                .andExpect(header().string(HttpHeaders.ETAG, etag(expected.getEmail())))
                 .andExpect(jsonPath("$.email", is(expected.getEmail())))
                 .andExpect(jsonPath("$.firstName", is(expected.getFirstName())))
                 .andExpect(jsonPath("$.lastName", is(expected.getLastName())))
@@ -72,6 +81,30 @@ class UserControllerTest {
                 .andReturn();
     }
 
+    @Test
+    @DisplayName("Delete and re-create user, If-Match of the deleted user returns precondition failed")
+    void create_afterDelete_returnsNewETag() throws Exception {
+        String jsonRequest = objectMapper.writeValueAsString(getUserBob());
+        mockMvc.perform(post(URL_TEMPLATE)
+                        .content(jsonRequest)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated());
+        String deletedETag = etag(BOB_EMAIL);
+        mockMvc.perform(delete(URL_TEMPLATE + "/" + BOB_EMAIL)
+                        .header(HttpHeaders.IF_MATCH, deletedETag))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(post(URL_TEMPLATE)
+                        .content(jsonRequest)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(HttpHeaders.ETAG, not(deletedETag)));
+        mockMvc.perform(patch(URL_TEMPLATE + "/" + BOB_EMAIL)
+                        .header(HttpHeaders.IF_MATCH, deletedETag)
+                        .content(objectMapper.writeValueAsString(Map.of("firstName", "Robby")))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isPreconditionFailed());
+    }
+
     @Test
     @DisplayName("Save user to DB, empty email field, returns exception")
     void create_emptyEmailField_returnsException() throws Exception {
@@ -165,7 +198,7 @@ class UserControllerTest {
     @DisplayName("Update user's fields, returns updated user")
     void updateFields_validRequest_returnsUpdatedUser() throws Exception {
         User user = getUserBob();
-        UserStorage.usersDB.add(user);
+        userStorage.insert(UserRecord.of(user, 1));
         String changedFirstName = "Robby";
         String changedBirthDate = "1999-05-15";
         Map<String, Object> fields = new HashMap<>();
@@ -185,11 +218,26 @@ class UserControllerTest {
                 .andReturn();
     }
 
+    @Test
+    @DisplayName("Update all user's fields, empty birthdate field, returns bad request")
+    void update_emptyBirthDate_returnsBadRequest() throws Exception {
+        userStorage.insert(UserRecord.of(getUserBob(), 1));
+        User user = getChangedUserBob();
+        user.setBirthDate(null);
+        mockMvc.perform(put(URL_TEMPLATE + "/" + BOB_EMAIL)
+                        .content(objectMapper.writeValueAsString(user))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors[0]", containsString("birthDate")));
+        Assertions.assertEquals(getUserBob().getBirthDate(),
+                userStorage.find(BOB_EMAIL).orElseThrow().birthDate());
+    }
+
     @Test
     @DisplayName("Update all user's fields, returns updated user")
     void update_validUser_returnsUpdatedUser() throws Exception {
         User user = getUserBob();
-        UserStorage.usersDB.add(user);
+        userStorage.insert(UserRecord.of(user, 1));
         User expected = getChangedUserBob();
         String jsonRequest = objectMapper.writeValueAsString(expected);
         mockMvc.perform(put(URL_TEMPLATE + "/" + BOB_EMAIL)
@@ -205,10 +253,54 @@ class UserControllerTest {
                 .andReturn();
     }
 
+    @Test
+    @DisplayName("Save user with already existing email, returns conflict status code")
+    void create_existingEmail_returnsConflict() throws Exception {
+        userStorage.insert(UserRecord.of(getUserBob(), 1));
+        String jsonRequest = objectMapper.writeValueAsString(getChangedUserBob());
+        mockMvc.perform(post(URL_TEMPLATE)
+                        .content(jsonRequest)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    @DisplayName("Update user with matching If-Match header, returns new version as ETag")
+    void update_matchingIfMatch_returnsNextVersion() throws Exception {
+        userStorage.insert(UserRecord.of(getUserBob(), 1));
+        String jsonRequest = objectMapper.writeValueAsString(getChangedUserBob());
+        mockMvc.perform(put(URL_TEMPLATE + "/" + BOB_EMAIL)
+                        .header(HttpHeaders.IF_MATCH, "\"1\"")
+                        .content(jsonRequest)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not("\"1\"")))
+                .andExpect(header().string(HttpHeaders.ETAG, etag(BOB_EMAIL)));
+    }
+
+    @Test
+    @DisplayName("Update user with outdated If-Match header, returns precondition failed")
+    void updateFields_outdatedIfMatch_returnsPreconditionFailed() throws Exception {
+        userStorage.insert(UserRecord.of(getUserBob(), 1).next(getChangedUserBob(), 2));
+        String jsonRequest = objectMapper.writeValueAsString(Map.of("firstName", "Robby"));
+        mockMvc.perform(patch(URL_TEMPLATE + "/" + BOB_EMAIL)
+                        .header(HttpHeaders.IF_MATCH, "\"1\"")
+                        .content(jsonRequest)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(delete(URL_TEMPLATE + "/" + BOB_EMAIL)
+                        .header(HttpHeaders.IF_MATCH, "\"1\""))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(get(URL_TEMPLATE + "/" + BOB_EMAIL))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2\""))
+                .andExpect(jsonPath("$.firstName", is(getChangedUserBob().getFirstName())));
+    }
+
     @Test
     @DisplayName("Delete user by email, returns no content status code")
     void delete_validEmail_returnsNoContent() throws Exception {
-        UserStorage.usersDB.add(getUserBob());
+        userStorage.insert(UserRecord.of(getUserBob(), 1));
         mockMvc.perform(delete(URL_TEMPLATE + "/" + BOB_EMAIL))
                 .andExpect(status().isNoContent());
     }
@@ -217,8 +309,8 @@ class UserControllerTest {
     @DisplayName("Find users by birthdate range, returns list of one user")
     void getByBirthDateRange_validRange_returnsListOfOne() throws Exception {
         User expected = getUserPhil();
-        UserStorage.usersDB.add(getUserPhil());
-        UserStorage.usersDB.add(getUserKate());
+        userStorage.insert(UserRecord.of(getUserPhil(), 1));
+        userStorage.insert(UserRecord.of(getUserKate(), 1));
         String range = "?from=1990-01-01&to=2000-01-01";
         mockMvc.perform(get(URL_TEMPLATE + range)
                         .contentType(MediaType.APPLICATION_JSON))
@@ -233,6 +325,108 @@ class UserControllerTest {
 
     }
 
+    @Test
+    @DisplayName("Search users by last name and birthdate range, returns list of one user")
+    void search_severalCriteria_returnsListOfOne() throws Exception {
+        userStorage.insert(UserRecord.of(getUserBob(), 1));
+        userStorage.insert(UserRecord.of(getUserPhil(), 1));
+        userStorage.insert(UserRecord.of(getUserKate(), 1));
+        String criteria = "?from=1980-01-01&to=2000-01-01&lastName=Collins&limit=10";
+        mockMvc.perform(get(URL_TEMPLATE + "/search" + criteria))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].email", is(getUserPhil().getEmail())));
+    }
+
+    @Test
+    @DisplayName("Search users with non-positive limit, returns bad request")
+    void search_invalidLimit_returnsBadRequest() throws Exception {
+        mockMvc.perform(get(URL_TEMPLATE + "/search?limit=0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Find users by birthdate range with fields, returns only requested fields")
+    void getByBirthDateRange_requestedFields_returnsProjection() throws Exception {
+        User expected = getUserPhil();
+        userStorage.insert(UserRecord.of(expected, 1));
+        String range = "?from=1990-01-01&to=2000-01-01&fields=email,birthDate";
+        mockMvc.perform(get(URL_TEMPLATE + range))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].email", is(expected.getEmail())))
+                .andExpect(jsonPath("$[0].birthDate", is(expected.getBirthDate().toString())))
+                .andExpect(jsonPath("$[0].firstName").doesNotExist())
+                .andExpect(jsonPath("$[0].address").doesNotExist())
+                .andExpect(jsonPath("$[0].phoneNumber").doesNotExist());
+        mockMvc.perform(get(URL_TEMPLATE + "/" + expected.getEmail() + "?fields=lastName"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lastName", is(expected.getLastName())))
+                .andExpect(jsonPath("$.email").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("Find users with unknown field, returns bad request")
+    void getByBirthDateRange_unknownField_returnsBadRequest() throws Exception {
+        mockMvc.perform(get(URL_TEMPLATE + "?from=1990-01-01&to=2000-01-01&fields=password"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Delete users by birthdate range, returns number of deleted users")
+    void deleteUsers_birthDateRange_returnsAffected() throws Exception {
+        userStorage.insert(UserRecord.of(getUserBob(), 1));
+        userStorage.insert(UserRecord.of(getUserPhil(), 1));
+        userStorage.insert(UserRecord.of(getUserKate(), 1));
+        String range = "?from=1980-01-01&to=2000-01-01";
+        mockMvc.perform(delete(URL_TEMPLATE + range + "&dryRun=true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.affected", is(2)))
+                .andExpect(jsonPath("$.dryRun", is(true)));
+        mockMvc.perform(delete(URL_TEMPLATE + range))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.affected", is(2)));
+        mockMvc.perform(get(URL_TEMPLATE + range))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+    }
+
+    @Test
+    @DisplayName("Update users by last name with unknown field, returns bad request")
+    void updateUsers_unknownField_returnsBadRequest() throws Exception {
+        userStorage.insert(UserRecord.of(getUserPhil(), 1));
+        mockMvc.perform(patch(URL_TEMPLATE + "?lastName=Collins")
+                        .content(objectMapper.writeValueAsString(Map.of("password", "secret")))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Update users by last name with invalid values, returns bad request")
+    void updateUsers_invalidValues_returnsBadRequest() throws Exception {
+        userStorage.insert(UserRecord.of(getUserPhil(), 1));
+        for (Map<String, Object> fields : List.of(Map.<String, Object>of("birthDate", "x"),
+                Map.<String, Object>of("version", 7), Map.<String, Object>of("address", 7))) {
+            mockMvc.perform(patch(URL_TEMPLATE + "?lastName=Collins")
+                            .content(objectMapper.writeValueAsString(fields))
+                            .contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isBadRequest());
+        }
+        Assertions.assertEquals(1, userStorage.find(getUserPhil().getEmail())
+                .orElseThrow().version());
+    }
+
+    @Test
+    @DisplayName("Delete users without criteria, returns bad request")
+    void deleteUsers_noCriteria_returnsBadRequest() throws Exception {
+        mockMvc.perform(delete(URL_TEMPLATE))
+                .andExpect(status().isBadRequest());
+    }
+
+    private String etag(String email) {
+        return "\"" + userStorage.find(email).orElseThrow().version() + "\"";
+    }
+
     private User getUserBob() {
         User user = new User();
         user.setEmail("bob@gmail.com");
@@ -0,0 +1,55 @@
+package com.usermanagement.db;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SegmentTest {
+    private static final int USERS = 1000;
+    @TempDir
+    private Path directory;
+
+    @Test
+    @DisplayName("Merge segments in parallel, splits on index keys and returns newest entries once")
+    void newest_parallel_splitsAndReturnsNewestEntries() {
+        Segment older = Segment.write(directory.resolve("1.seg"), IntStream.range(0, USERS)
+                .mapToObj(i -> Entry.live(record(i, 1)))
+                .iterator(), 8);
+        Segment newer = Segment.write(directory.resolve("2.seg"), IntStream.range(0, USERS)
+                .filter(i -> i % 10 == 0)
+                .mapToObj(i -> i % 20 == 0 ? Entry.tombstone(email(i)) : Entry.live(record(i, 2)))
+                .iterator(), 8);
+        List<Segment> newestFirst = List.of(newer, older);
+        Spliterator<Entry> spliterator = Segment.newest(newestFirst, null, null).spliterator();
+        Assertions.assertNotNull(spliterator.trySplit());
+        List<Entry> actual = Segment.newest(newestFirst, null, null)
+                .parallel()
+                .collect(Collectors.toList());
+        Assertions.assertEquals(USERS - USERS / 20, actual.stream()
+                .filter(e -> !e.isTombstone())
+                .map(Entry::email)
+                .distinct()
+                .count());
+        Assertions.assertEquals(USERS, actual.size());
+        Assertions.assertTrue(actual.stream()
+                .filter(e -> !e.isTombstone() && e.email().endsWith("0@gmail.com"))
+                .allMatch(e -> e.record().version() == 2));
+    }
+
+    private UserRecord record(int i, long version) {
+        return new UserRecord(email(i), "First", "Last", LocalDate.of(1990, Month.JANUARY, 1)
+                .plusDays(i), null, null, version);
+    }
+
+    private String email(int i) {
+        return String.format("user%04d@gmail.com", i);
+    }
+}
@@ -0,0 +1,154 @@
+package com.usermanagement.db;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class UserStorageTest {
+    private static final LocalDate FROM = LocalDate.of(1990, Month.JANUARY, 1);
+    private static final LocalDate TO = LocalDate.of(2000, Month.JANUARY, 1);
+    @TempDir
+    private Path directory;
+    private UserStorage userStorage;
+
+    @BeforeEach
+    void setUp() {
+        userStorage = new UserStorage(directory.toString(), 1000, 10, 4, 3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        userStorage.close();
+    }
+
+    @Test
+    @DisplayName("Flush users to a segment, every user is still found by email")
+    void flush_manyUsers_allFoundInSegment() {
+        for (int i = 0; i < 100; i++) {
+            userStorage.insert(record("user" + i + "@gmail.com", LocalDate.of(1990, 1, 1)
+                    .plusDays(i), 1));
+        }
+        userStorage.flush();
+        Assertions.assertEquals(1, userStorage.getSegmentCount());
+        for (int i = 0; i < 100; i++) {
+            String email = "user" + i + "@gmail.com";
+            Assertions.assertEquals(email, userStorage.find(email).orElseThrow().email());
+        }
+        Assertions.assertTrue(userStorage.find("user100@gmail.com").isEmpty());
+        Assertions.assertTrue(userStorage.find("a@gmail.com").isEmpty());
+        Assertions.assertTrue(userStorage.find("z@gmail.com").isEmpty());
+        Assertions.assertEquals(100, userStorage.size());
+    }
+
+    @Test
+    @DisplayName("Update and delete spilled users, newer versions shadow the segment")
+    void replaceAndRemove_spilledUsers_newestVersionVisible() {
+        UserRecord bob = record("bob@gmail.com", LocalDate.of(1995, Month.MAY, 1), 1);
+        UserRecord kate = record("kate@gmail.com", LocalDate.of(1996, Month.MAY, 1), 1);
+        userStorage.insert(bob);
+        userStorage.insert(kate);
+        userStorage.flush();
+        UserRecord olderBob = record("bob@gmail.com", LocalDate.of(1970, Month.MAY, 1), 2);
+        Assertions.assertFalse(userStorage.insert(bob));
+        Assertions.assertFalse(userStorage.replace(olderBob, bob));
+        Assertions.assertTrue(userStorage.replace(bob, olderBob));
+        Assertions.assertTrue(userStorage.remove(kate));
+        Assertions.assertFalse(userStorage.remove(kate));
+        userStorage.flush();
+        Assertions.assertEquals(olderBob, userStorage.find(bob.email()).orElseThrow());
+        Assertions.assertTrue(userStorage.find(kate.email()).isEmpty());
+        Assertions.assertTrue(userStorage.streamByBirthDate(FROM, TO).findAny().isEmpty());
+        Assertions.assertTrue(userStorage.insert(kate));
+        Assertions.assertEquals(kate, userStorage.find(kate.email()).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Stream users by birthdate range, returns latest versions from all tiers")
+    void streamByBirthDate_usersInAllTiers_returnsUsersInRange() {
+        userStorage.insert(record("old@gmail.com", LocalDate.of(1960, Month.MAY, 1), 1));
+        userStorage.insert(record("phil@gmail.com", LocalDate.of(1995, Month.JANUARY, 11), 1));
+        userStorage.flush();
+        userStorage.insert(record("kate@gmail.com", LocalDate.of(2002, Month.JUNE, 7), 1));
+        userStorage.insert(record("ann@gmail.com", LocalDate.of(1991, Month.JUNE, 7), 1));
+        userStorage.flush();
+        userStorage.insert(record("bob@gmail.com", LocalDate.of(1998, Month.SEPTEMBER, 28), 1));
+        List<String> actual = userStorage.streamByBirthDate(FROM, TO)
+                .parallel()
+                .map(UserRecord::email)
+                .sorted()
+                .collect(Collectors.toList());
+        Assertions.assertEquals(List.of("ann@gmail.com", "bob@gmail.com", "phil@gmail.com"),
+                actual);
+    }
+
+    @Test
+    @DisplayName("Stream users by birthdate range, newer segments outside the range shadow users")
+    void streamByBirthDate_shadowedBySkippedSegments_returnsLatestVersions() {
+        UserRecord ann = record("ann@gmail.com", LocalDate.of(1991, Month.JUNE, 7), 1);
+        UserRecord bob = record("bob@gmail.com", LocalDate.of(1995, Month.MAY, 1), 1);
+        UserRecord kate = record("kate@gmail.com", LocalDate.of(1996, Month.MAY, 1), 1);
+        userStorage.insert(ann);
+        userStorage.insert(bob);
+        userStorage.insert(kate);
+        userStorage.flush();
+        UserRecord olderBob = record("bob@gmail.com", LocalDate.of(1970, Month.MAY, 1), 2);
+        userStorage.replace(bob, olderBob);
+        userStorage.flush();
+        userStorage.remove(kate);
+        userStorage.flush();
+        Assertions.assertEquals(3, userStorage.getSegmentCount());
+        Assertions.assertEquals(List.of(ann), userStorage.streamByBirthDate(FROM, TO).toList());
+        Assertions.assertEquals(List.of(ann, olderBob), userStorage.stream().toList());
+    }
+
+    @Test
+    @DisplayName("Flush user without birthdate, user is spilled and skipped by range scans")
+    void flush_userWithoutBirthDate_spilledToSegment() {
+        UserRecord bob = record("bob@gmail.com", null, 1);
+        UserRecord kate = record("kate@gmail.com", LocalDate.of(1996, Month.MAY, 1), 1);
+        userStorage.insert(bob);
+        userStorage.insert(kate);
+        userStorage.flush();
+        Assertions.assertEquals(1, userStorage.getSegmentCount());
+        Assertions.assertEquals(bob, userStorage.find(bob.email()).orElseThrow());
+        Assertions.assertEquals(List.of(kate), userStorage.streamByBirthDate(FROM, TO).toList());
+        Assertions.assertEquals(2, userStorage.size());
+    }
+
+    @Test
+    @DisplayName("Compact segments, keeps only the latest version of every live user")
+    void compact_severalSegments_mergedIntoOne() {
+        UserRecord bob = record("bob@gmail.com", LocalDate.of(1995, Month.MAY, 1), 1);
+        UserRecord kate = record("kate@gmail.com", LocalDate.of(1996, Month.MAY, 1), 1);
+        UserRecord phil = record("phil@gmail.com", LocalDate.of(1997, Month.MAY, 1), 1);
+        userStorage.insert(bob);
+        userStorage.insert(kate);
+        userStorage.flush();
+        UserRecord newerBob = record("bob@gmail.com", LocalDate.of(1999, Month.MAY, 1), 2);
+        userStorage.replace(bob, newerBob);
+        userStorage.remove(kate);
+        userStorage.flush();
+        userStorage.insert(phil);
+        userStorage.flush();
+        Assertions.assertEquals(3, userStorage.getSegmentCount());
+        userStorage.compact();
+        Assertions.assertEquals(1, userStorage.getSegmentCount());
+        Assertions.assertEquals(newerBob, userStorage.find(bob.email()).orElseThrow());
+        Assertions.assertTrue(userStorage.find(kate.email()).isEmpty());
+        Assertions.assertEquals(phil, userStorage.find(phil.email()).orElseThrow());
+        Assertions.assertEquals(2, userStorage.size());
+    }
+
+    private UserRecord record(String email, LocalDate birthDate, long version) {
+        return new UserRecord(email, "First", "Last", birthDate, null, "+380671113434",
+                version);
+    }
+}
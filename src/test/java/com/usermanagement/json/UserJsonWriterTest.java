@@ -0,0 +1,107 @@
+package com.usermanagement.json;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.usermanagement.model.User;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class UserJsonWriterTest {
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private UserJsonCache userJsonCache;
+    private UserJsonWriter userJsonWriter;
+
+    @BeforeEach
+    void setUp() {
+        userJsonCache = new UserJsonCache(true, 1024, false);
+        userJsonWriter = new UserJsonWriter(objectMapper, userJsonCache);
+    }
+
+    @Test
+    @DisplayName("Write users with all fields, output equals Jackson serialization")
+    void write_completeProjection_equalsJackson() throws Exception {
+        List<User> users = List.of(getUserPhil(1), getUserKate());
+        byte[] expected = objectMapper.writeValueAsBytes(users);
+        UserProjection projection = userJsonWriter.getProjection(null);
+        Assertions.assertArrayEquals(expected, userJsonWriter.write(users, projection));
+        Assertions.assertTrue(userJsonCache.getCachedBytes() > 0);
+        Assertions.assertArrayEquals(expected, userJsonWriter.write(users, projection));
+    }
+
+    @Test
+    @DisplayName("Write user with a newer version, cached bytes of the old version are not used")
+    void write_newerVersion_serializedAgain() throws Exception {
+        UserProjection projection = userJsonWriter.getProjection("");
+        userJsonWriter.write(getUserPhil(1), projection);
+        User changed = getUserPhil(2);
+        changed.setFirstName("Phil");
+        byte[] actual = userJsonWriter.write(changed, projection);
+        Assertions.assertArrayEquals(objectMapper.writeValueAsBytes(changed), actual);
+        Assertions.assertSame(actual, userJsonWriter.write(changed, projection));
+    }
+
+    @Test
+    @DisplayName("Write many users, cached bytes stay within the memory bound")
+    void write_manyUsers_cacheBounded() {
+        UserProjection projection = userJsonWriter.getProjection(null);
+        for (int i = 0; i < 100; i++) {
+            User user = getUserPhil(1);
+            user.setEmail("user" + i + "@gmail.com");
+            userJsonWriter.write(user, projection);
+        }
+        Assertions.assertTrue(userJsonCache.getCachedBytes() <= 1024);
+    }
+
+    @Test
+    @DisplayName("Write user in cluster mode, cache stays disabled")
+    void write_clusterMode_notCached() {
+        UserJsonCache clusterCache = new UserJsonCache(true, 1024, true);
+        UserJsonWriter clusterWriter = new UserJsonWriter(objectMapper, clusterCache);
+        clusterWriter.write(getUserPhil(1), clusterWriter.getProjection(null));
+        Assertions.assertFalse(clusterCache.isEnabled());
+        Assertions.assertEquals(0, clusterCache.getCachedBytes());
+    }
+
+    @Test
+    @DisplayName("Write users with some fields, projections are prepared once per shape")
+    void getProjection_sameFields_returnsSameProjection() {
+        UserProjection projection = userJsonWriter.getProjection("email,birthDate");
+        Assertions.assertSame(projection, userJsonWriter.getProjection("birthDate, email"));
+        Assertions.assertFalse(projection.isComplete());
+        String actual = new String(userJsonWriter.write(getUserKate(), projection));
+        Assertions.assertEquals("{\"email\":\"brown@gmail.com\",\"birthDate\":\"2002-06-07\"}",
+                actual);
+    }
+
+    private User getUserPhil(long version) {
+        User user = new User();
+        user.setEmail("collins@gmail.com");
+        user.setFirstName("Phillip");
+        user.setLastName("Collins");
+        user.setBirthDate(LocalDate.of(1995, Month.JANUARY, 11));
+        user.setAddress("Lviv, Ploshcha Rynok, 1");
+        user.setPhoneNumber("+380671113434");
+        user.setVersion(version);
+        return user;
+    }
+
+    private User getUserKate() {
+        User user = new User();
+        user.setEmail("brown@gmail.com");
+        user.setFirstName("Kate");
+        user.setLastName("Brown");
+        user.setBirthDate(LocalDate.of(2002, Month.JUNE, 7));
+        user.setAddress(null);
+        user.setPhoneNumber("+380662224477");
+        user.setVersion(1L);
+        return user;
+    }
+}
@@ -1,16 +1,29 @@
 package com.usermanagement.service;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import com.usermanagement.db.UserRecord;
 import com.usermanagement.db.UserStorage;
 import com.usermanagement.exception.DateCheckingException;
+import com.usermanagement.exception.InvalidCriteriaException;
 import com.usermanagement.exception.UserNotFoundException;
+import com.usermanagement.exception.VersionConflictException;
+import com.usermanagement.model.BulkResult;
 import com.usermanagement.model.User;
+import com.usermanagement.model.UserQuery;
 import com.usermanagement.service.impl.UserServiceImpl;
+import com.usermanagement.service.query.AccessPath;
+import com.usermanagement.service.query.QueryPlanner;
 import java.time.LocalDate;
 import java.time.Month;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.DisplayName;
@@ -31,6 +44,10 @@ class UserServiceImplTest {
     private static final String NOT_EXISTED_EMAIL = "st@gmail.com";
     @Autowired
     private UserServiceImpl userService;
+    @Autowired
+    private UserStorage userStorage;
+    @Autowired
+    private QueryPlanner queryPlanner;
 
     @BeforeAll
     static void beforeAll() {
@@ -67,9 +84,10 @@ class UserServiceImplTest {
     @DisplayName("Save valid user to DB from the valid request")
     void create_validUser_returnsValidUserFromDB() {
         userService.create(USER_BOB);
-        User actual = UserStorage.usersDB.get(0);
+        User actual = userStorage.find(BOB_EMAIL).orElseThrow().toUser();
         Assertions.assertEquals(USER_BOB, actual);
-        UserStorage.usersDB.clear();
+        Assertions.assertTrue(actual.getVersion() > 0);
+        userStorage.clear();
     }
 
     @Test
@@ -86,44 +104,44 @@ class UserServiceImplTest {
     @Test
     @DisplayName("Update some user's fields, returns updated user")
     void updateFields_validFields_returnsUpdatedUser() {
-        UserStorage.usersDB.add(USER_BOB);
+        userStorage.insert(UserRecord.of(USER_BOB, 1));
         String changedFirstName = "Robby";
         String changedBirthDate = "1999-05-15";
         Map<String, Object> fields = new HashMap<>();
         fields.put("firstName", changedFirstName);
         fields.put("birthDate", changedBirthDate);
-        User actual = userService.updateFields(BOB_EMAIL, fields);
+        User actual = userService.updateFields(BOB_EMAIL, fields, null);
         Assertions.assertEquals(BOB_EMAIL, actual.getEmail());
         Assertions.assertEquals(changedFirstName, actual.getFirstName());
         Assertions.assertEquals(USER_BOB.getLastName(), actual.getLastName());
         Assertions.assertEquals(LocalDate.parse(changedBirthDate), actual.getBirthDate());
         Assertions.assertEquals(USER_BOB.getAddress(), actual.getAddress());
         Assertions.assertEquals(USER_BOB.getPhoneNumber(), actual.getPhoneNumber());
-        UserStorage.usersDB.clear();
+        userStorage.clear();
     }
 
     @Test
     @DisplayName("Update user's fields by not existed email, returns UserNotFoundException")
     void updateFields_notExistedEmail_returnsException() {
-        UserStorage.usersDB.add(USER_BOB);
+        userStorage.insert(UserRecord.of(USER_BOB, 1));
         String changedFirstName = "Robert";
         String changedBirthDate = "1999-05-15";
         Map<String, Object> fields = new HashMap<>();
         fields.put("firstName", changedFirstName);
         fields.put("birthDate", changedBirthDate);
         UserNotFoundException exception = Assertions.assertThrows(UserNotFoundException.class,
-                () -> userService.updateFields(NOT_EXISTED_EMAIL, fields)
+                () -> userService.updateFields(NOT_EXISTED_EMAIL, fields, null)
         );
         String expected = "User with email: " + NOT_EXISTED_EMAIL + " does not exist.";
         String actual = exception.getMessage();
         Assertions.assertEquals(expected, actual);
-        UserStorage.usersDB.clear();
+        userStorage.clear();
     }
 
     @Test
     @DisplayName("Update user, returns user with all updated fields")
     void updateAllFields_validUser_returnsUpdatedUser() {
-        UserStorage.usersDB.add(USER_BOB);
+        userStorage.insert(UserRecord.of(USER_BOB, 1));
         User bob = new User();
         bob.setEmail(BOB_EMAIL);
         bob.setFirstName("Robert");
@@ -131,30 +149,65 @@ class UserServiceImplTest {
         bob.setBirthDate(LocalDate.parse("2000-04-27"));
         bob.setAddress("Cherkasy, Khreshchatyk 28");
         bob.setPhoneNumber("+380678889922");
-        User actual = userService.updateAllFields(BOB_EMAIL, bob);
+        User actual = userService.updateAllFields(BOB_EMAIL, bob, null);
         Assertions.assertEquals(bob, actual);
-        UserStorage.usersDB.clear();
+        userStorage.clear();
+    }
+
+    @Test
+    @DisplayName("Update user with outdated version, returns VersionConflictException")
+    void updateAllFields_outdatedVersion_returnsException() {
+        userStorage.insert(UserRecord.of(USER_BOB, 1));
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("firstName", "Robby");
+        userService.updateFields(BOB_EMAIL, fields, 1L);
+        Assertions.assertThrows(VersionConflictException.class,
+                () -> userService.updateAllFields(BOB_EMAIL, USER_BOB, 1L)
+        );
+        Assertions.assertEquals("Robby", userService.getUser(BOB_EMAIL).getFirstName());
+        userStorage.clear();
+    }
+
+    @Test
+    @DisplayName("Concurrent updates of the same user, no update is lost")
+    void updateFields_concurrentUpdates_noLostUpdates() throws InterruptedException {
+        userStorage.insert(UserRecord.of(USER_BOB, 1));
+        int updates = 200;
+        Set<Long> versions = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < updates; i++) {
+            Map<String, Object> fields = Map.of("address", "Address " + i);
+            executor.execute(() -> versions.add(
+                    userService.updateFields(BOB_EMAIL, fields, null).getVersion()));
+        }
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        User actual = userService.getUser(BOB_EMAIL);
+        Assertions.assertEquals(updates, versions.size());
+        Assertions.assertEquals(Collections.max(versions), actual.getVersion());
+        Assertions.assertEquals(USER_BOB.getFirstName(), actual.getFirstName());
+        userStorage.clear();
     }
 
     @Test
     @DisplayName("Delete user by its email, user is removed from DB")
     void deleteUser_validUserEmail_removedFromDB() {
-        UserStorage.usersDB.add(USER_BOB);
-        userService.deleteUser(BOB_EMAIL);
-        Assertions.assertEquals(0, UserStorage.usersDB.size());
+        userStorage.insert(UserRecord.of(USER_BOB, 1));
+        userService.deleteUser(BOB_EMAIL, null);
+        Assertions.assertEquals(0, userStorage.size());
     }
 
     @Test
     @DisplayName("Find users by birthdate range, returns list of one user")
     void getUsersByBirthDateRange_validRange_returnsListOfOne() {
-        UserStorage.usersDB.add(USER_PHIL);
-        UserStorage.usersDB.add(USER_KATE);
+        userStorage.insert(UserRecord.of(USER_PHIL, 1));
+        userStorage.insert(UserRecord.of(USER_KATE, 1));
         LocalDate from = LocalDate.of(1990, Month.JANUARY, 1);
         LocalDate to = LocalDate.of(2000, Month.JANUARY, 1);
         List<User> actual = userService.getUsersByBirthDateRange(from, to);
         Assertions.assertEquals(1, actual.size());
         Assertions.assertEquals(USER_PHIL, actual.get(0));
-        UserStorage.usersDB.clear();
+        userStorage.clear();
     }
 
     @Test
@@ -170,4 +223,97 @@ class UserServiceImplTest {
         String actual = exception.getMessage();
         Assertions.assertEquals(expected, actual);
     }
+
+    @Test
+    @DisplayName("Find users by several criteria, returns users matching all of them")
+    void findUsers_severalCriteria_returnsMatchingUsers() {
+        userStorage.insert(UserRecord.of(USER_BOB, 1));
+        userStorage.insert(UserRecord.of(USER_PHIL, 1));
+        userStorage.insert(UserRecord.of(USER_KATE, 1));
+        UserQuery query = new UserQuery();
+        query.setFrom(LocalDate.of(1990, Month.JANUARY, 1));
+        query.setTo(LocalDate.of(2000, Month.JANUARY, 1));
+        query.setAddressContains("lviv");
+        query.setPhonePrefix("+38067");
+        List<User> actual = userService.findUsers(query);
+        Assertions.assertEquals(List.of(USER_PHIL), actual);
+        query = new UserQuery();
+        query.setLastName("brown");
+        Assertions.assertEquals(List.of(USER_KATE), userService.findUsers(query));
+        query.setLimit(1);
+        query.setLastName(null);
+        Assertions.assertEquals(1, userService.findUsers(query).size());
+        userStorage.clear();
+    }
+
+    @Test
+    @DisplayName("Plan queries, picks the most selective available access path")
+    void plan_differentCriteria_picksMostSelectiveAccessPath() {
+        userStorage.insert(UserRecord.of(USER_PHIL, 1));
+        userStorage.flush();
+        userStorage.insert(UserRecord.of(USER_KATE, 1));
+        userStorage.flush();
+        UserQuery query = new UserQuery();
+        query.setLastName("Collins");
+        Assertions.assertEquals(AccessPath.FULL_SCAN, queryPlanner.plan(query).accessPath());
+        query.setFrom(LocalDate.of(1990, Month.JANUARY, 1));
+        query.setTo(LocalDate.of(2000, Month.JANUARY, 1));
+        Assertions.assertEquals(AccessPath.BIRTH_DATE_RANGE,
+                queryPlanner.plan(query).accessPath());
+        Assertions.assertEquals(List.of(USER_PHIL), userService.findUsers(query));
+        query.setEmail(USER_PHIL.getEmail());
+        Assertions.assertEquals(AccessPath.EMAIL_LOOKUP, queryPlanner.plan(query).accessPath());
+        Assertions.assertEquals(List.of(USER_PHIL), userService.findUsers(query));
+        userStorage.clear();
+    }
+
+    @Test
+    @DisplayName("Delete users by birthdate range, deletes only matching users in memory and segments")
+    void deleteUsers_birthDateRange_deletesMatchingUsers() {
+        userStorage.insert(UserRecord.of(USER_PHIL, 1));
+        userStorage.flush();
+        userStorage.insert(UserRecord.of(USER_BOB, 1));
+        userStorage.insert(UserRecord.of(USER_KATE, 1));
+        UserQuery criteria = new UserQuery();
+        criteria.setFrom(LocalDate.of(1990, Month.JANUARY, 1));
+        criteria.setTo(LocalDate.of(2000, Month.JANUARY, 1));
+        BulkResult dryRun = userService.deleteUsers(criteria, true);
+        Assertions.assertEquals(2, dryRun.getAffected());
+        Assertions.assertEquals(3, userStorage.size());
+        BulkResult actual = userService.deleteUsers(criteria, false);
+        Assertions.assertEquals(2, actual.getAffected());
+        Assertions.assertFalse(actual.isDryRun());
+        Assertions.assertEquals(List.of(USER_KATE.getEmail()),
+                userStorage.stream().map(UserRecord::email).toList());
+        userStorage.clear();
+    }
+
+    @Test
+    @DisplayName("Update users by predicate, updates fields and versions of matching users")
+    void updateUsers_predicate_updatesMatchingUsers() {
+        userStorage.insert(UserRecord.of(USER_BOB, 1));
+        userStorage.insert(UserRecord.of(USER_PHIL, 1));
+        userStorage.flush();
+        userStorage.insert(UserRecord.of(USER_KATE, 1));
+        UserQuery criteria = new UserQuery();
+        criteria.setPhonePrefix("+38098");
+        BulkResult actual = userService.updateUsers(criteria, Map.of("address", "Odesa"), false);
+        Assertions.assertEquals(1, actual.getAffected());
+        User updated = userService.getUser(BOB_EMAIL);
+        Assertions.assertEquals("Odesa", updated.getAddress());
+        Assertions.assertTrue(updated.getVersion() > 1);
+        Assertions.assertEquals(USER_PHIL.getAddress(),
+                userService.getUser(USER_PHIL.getEmail()).getAddress());
+        userStorage.clear();
+    }
+
+    @Test
+    @DisplayName("Delete users without criteria, returns InvalidCriteriaException")
+    void deleteUsers_noCriteria_returnsException() {
+        userStorage.insert(UserRecord.of(USER_BOB, 1));
+        assertThrows(InvalidCriteriaException.class,
+                () -> userService.deleteUsers(new UserQuery(), false));
+        Assertions.assertEquals(1, userStorage.size());
+        userStorage.clear();
+    }
 }